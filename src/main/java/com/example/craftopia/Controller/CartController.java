@@ -1,6 +1,7 @@
 package com.example.craftopia.Controller;
 
 import com.example.craftopia.DTO.AddToCartRequest;
+import com.example.craftopia.DTO.CartBatchRequest;
 import com.example.craftopia.Service.CartService;
 import com.example.craftopia.Util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,11 +33,19 @@ public class CartController {
         }
     }
 
+    // Polled on every page view: the count is its own ETag, so an unchanged badge is a bodiless 304
     @GetMapping("/count")
-    public ResponseEntity<?> getCartItemCount() {
+    public ResponseEntity<?> getCartItemCount(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Long userId = securityUtil.getCurrentUserId();
-            return ResponseEntity.ok(service.getCartItemCount(userId));
+            int count = service.getCartItemCount(userId);
+            String eTag = "\"" + count + "\"";
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            if (eTag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+            }
+            return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(count);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Cart not found: " + e.getMessage());
         }
@@ -53,6 +62,17 @@ public class CartController {
         }
     }
 
+    // Several set/add/remove edits in one request and one transaction; answers with the resulting cart
+    @PostMapping("/batch")
+    public ResponseEntity<?> updateCart(@RequestBody CartBatchRequest req) {
+        try {
+            Long userId = securityUtil.getCurrentUserId();
+            return ResponseEntity.ok(service.applyOperations(userId, req.getOperations()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Failed to update cart: " + e.getMessage());
+        }
+    }
+
     @DeleteMapping("/remove/{productId}")
     public ResponseEntity<?> removeFromCart(@PathVariable("productId") Long productId) {
         try {
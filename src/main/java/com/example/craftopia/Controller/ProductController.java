@@ -1,20 +1,37 @@
 package com.example.craftopia.Controller;
 
+import com.example.craftopia.DTO.ProductPageResponse;
 import com.example.craftopia.DTO.ProductRequest;
 import com.example.craftopia.DTO.ProductResponse;
 import com.example.craftopia.DTO.ProductUpdateRequest;
+import com.example.craftopia.Service.BulkEnrichmentService;
 import com.example.craftopia.Service.CloudinaryService;
+import com.example.craftopia.Service.EnrichmentBackfillService;
+import com.example.craftopia.Service.GeminiClient;
+import com.example.craftopia.Service.ImageDuplicateIndex;
+import com.example.craftopia.Service.ImageProcessingService;
+import com.example.craftopia.Service.ImageUploadQueue;
+import com.example.craftopia.Service.TranslationMemory;
+import com.example.craftopia.Service.GeminiResultCache;
 import com.example.craftopia.Service.ProductService;
-import com.example.craftopia.Service.AIOrchestrationService;
+import com.example.craftopia.Service.AutoFillJobService;
+import com.example.craftopia.Util.FileStaging;
+import com.example.craftopia.Util.ProcessedImage;
 import com.example.craftopia.Util.SecurityUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 
 @RestController
@@ -24,9 +41,19 @@ public class ProductController {
 
     @Autowired
     public ProductService service;
-    @Autowired private AIOrchestrationService aiOrchestrationService;
+    @Autowired private AutoFillJobService autoFillJobService;
     @Autowired private SecurityUtil securityUtil;
     @Autowired private CloudinaryService cloudinaryService;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private GeminiResultCache geminiResultCache;
+    @Autowired private GeminiClient geminiClient;
+    @Autowired private BulkEnrichmentService bulkEnrichmentService;
+    @Autowired private ImageProcessingService imageProcessingService;
+    @Autowired private ImageDuplicateIndex imageDuplicateIndex;
+    @Autowired private ImageUploadQueue imageUploadQueue;
+    @Autowired private TranslationMemory translationMemory;
+    @Autowired private EnrichmentBackfillService enrichmentBackfillService;
+    @Autowired private FileStaging fileStaging;
 
     @PostMapping
     @PreAuthorize("hasRole('SELLER')")
@@ -39,30 +66,59 @@ public class ProductController {
             @RequestParam(value = "tags", required = false) List<String> tags,
             @RequestParam(value = "style", required = false) String style,
             @RequestParam(value = "originalLanguageText", required = false) String originalLanguageText,
-            @RequestParam(value = "translatedText", required = false) String translatedText
+            @RequestParam(value = "translatedText", required = false) String translatedText,
+            @RequestParam(value = "allowDuplicate", defaultValue = "false") boolean allowDuplicate,
+            @RequestParam(value = "asyncUpload", defaultValue = "true") boolean asyncUpload
     ) {
         try {
             if (image == null || image.isEmpty()) {
                 return ResponseEntity.badRequest().body("Image file is required.");
             }
 
-            // Upload image and enrich metadata
-            String imageUrl = cloudinaryService.uploadImage(image);
+            // Spool once; the original and its thumbnails are uploaded from disk
+            Path staged = fileStaging.stage(image, "create-");
+            ProcessedImage processed = imageProcessingService.thumbnails(staged);
+            boolean handedOff = false;
+            try {
+                // Checked before anything is uploaded or saved; the seller can resubmit with allowDuplicate=true
+                Optional<Long> duplicateOf = allowDuplicate ? Optional.empty()
+                        : imageDuplicateIndex.findDuplicate(processed.getImageHash());
+                if (duplicateOf.isPresent()) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body("Possible duplicate of product " + duplicateOf.get());
+                }
 
-            ProductRequest request = ProductRequest.builder()
-                    .name(name)
-                    .description(description)
-                    .price(price)
-                    .category(category)
-                    .imageUrl(imageUrl)
-                    .tags(tags)
-                    .style(style)
-                    .originalLanguageText(originalLanguageText)
-                    .translatedText(translatedText)
-                    .build();
+                ProductRequest request = ProductRequest.builder()
+                        .name(name)
+                        .description(description)
+                        .price(price)
+                        .category(category)
+                        .imageHash(processed.getImageHash())
+                        .tags(tags)
+                        .style(style)
+                        .originalLanguageText(originalLanguageText)
+                        .translatedText(translatedText)
+                        .build();
 
-            ProductResponse response = service.createProduct(request);
-            return ResponseEntity.ok(response);
+                // Default: save now, upload in the background; imageUrl and imageVariants are filled in when it lands.
+                // The product and its upload tasks are stored together, so neither exists without the other.
+                if (asyncUpload) {
+                    ProductResponse response = service.createProduct(request,
+                            id -> imageUploadQueue.enqueue(id, staged, processed.getThumbnails()));
+                    handedOff = true;
+                    return ResponseEntity.ok(response);
+                }
+
+                request.setImageUrl(cloudinaryService.uploadImage(staged.toFile()));
+                request.setImageVariants(cloudinaryService.uploadImages(processed.getThumbnails()));
+                return ResponseEntity.ok(service.createProduct(request));
+            } finally {
+                // Once queued, the staged files belong to the upload queue
+                if (!handedOff) {
+                    imageProcessingService.discard(processed);
+                    fileStaging.discard(staged);
+                }
+            }
 
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -73,9 +129,14 @@ public class ProductController {
 
     @PostMapping("/bulk-json")
     @PreAuthorize("hasRole('SELLER')")
-    public ResponseEntity<?> bulkCreateJson(@RequestBody List<ProductRequest> productList) {
+    public ResponseEntity<?> bulkCreateJson(
+            @RequestBody List<ProductRequest> productList,
+            @RequestParam(value = "enrich", defaultValue = "false") boolean enrich) {
         try {
-            return ResponseEntity.ok(service.bulkCreateProducts(productList));
+            List<ProductResponse> created = service.bulkCreateProducts(productList);
+            // Products are returned as created; AI details are filled in on the rows in the background
+            if (enrich) bulkEnrichmentService.submit(created);
+            return ResponseEntity.ok(created);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Bulk creation failed: " + e.getMessage());
@@ -85,9 +146,11 @@ public class ProductController {
 
     @PostMapping("/bulk-csv")
     @PreAuthorize("hasRole('SELLER')")
-    public ResponseEntity<?> bulkCreateFromCSV(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> bulkCreateFromCSV(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "parallel", defaultValue = "false") boolean parallel) {
         try {
-            return ResponseEntity.ok(service.bulkCreateProductsFromCSV(file));
+            return ResponseEntity.ok(service.bulkCreateProductsFromCSV(file, parallel));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CSV processing failed: " + e.getMessage());
         }
@@ -105,6 +168,66 @@ public class ProductController {
         }
     }
 
+    // Ranked full-text search; mode=all requires every term, mode=any matches on any term. "term*" is a prefix.
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "mode", defaultValue = "all") String mode,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        try {
+            return ResponseEntity.ok(service.searchProducts(query, !"any".equalsIgnoreCase(mode), limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Search failed "+e.getMessage());
+        }
+    }
+
+    // Sidebar counts per category, style, tag and price band; limit keeps only the top N of each
+    @GetMapping("/facets")
+    public ResponseEntity<?> getFacets(@RequestParam(name = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(service.getFacets(limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to fetch facets "+e.getMessage());
+        }
+    }
+
+    // Cursor-paginated catalog: pass the returned nextCursor back to get the following page
+    @GetMapping("/page")
+    public ResponseEntity<?> getPage(
+            @RequestParam(name = "cursor", required = false) Long cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "category", required = false) String category
+    ) {
+        try {
+            return ResponseEntity.ok(service.getProductPage(cursor, size, category));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to fetch products "+e.getMessage());
+        }
+    }
+
+    // Whole catalog as NDJSON (one product per line), written page by page so memory stays flat
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(name = "category", required = false) String category,
+            @RequestParam(name = "size", required = false) Integer size
+    ) {
+        StreamingResponseBody body = out -> {
+            Long cursor = null;
+            ProductPageResponse page;
+            do {
+                page = service.getProductPage(cursor, size, category);
+                for (ProductResponse product : page.getItems()) {
+                    out.write(objectMapper.writeValueAsBytes(product));
+                    out.write('\n');
+                }
+                out.flush();
+                cursor = page.getNextCursor();
+            } while (page.isHasMore());
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
 
     @GetMapping("/my-products")
     @PreAuthorize("hasRole('SELLER')")
@@ -128,13 +251,84 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(service.getCacheStats());
+    }
+
+    @GetMapping("/ai/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getAiCacheStats() {
+        return ResponseEntity.ok(geminiResultCache.stats());
+    }
+
+    // Re-enriches the existing catalog in the background; continues the last stopped run unless restart=true
+    @PostMapping("/ai/backfill/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startBackfill(@RequestParam(value = "restart", defaultValue = "false") boolean restart) {
+        try {
+            return ResponseEntity.accepted().body(enrichmentBackfillService.start(restart));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Failed to start backfill: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/ai/backfill/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> stopBackfill() {
+        try {
+            return ResponseEntity.accepted().body(enrichmentBackfillService.stop());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Failed to stop backfill: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/ai/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getBackfillStatus() {
+        return ResponseEntity.ok(enrichmentBackfillService.status());
+    }
+
+    @GetMapping("/ai/translation-memory/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getTranslationMemoryStats() {
+        return ResponseEntity.ok(translationMemory.stats());
+    }
+
+    @GetMapping("/ai/gemini/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getGeminiStats() {
+        return ResponseEntity.ok(geminiClient.stats());
+    }
+
+    @GetMapping("/images/uploads/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getImageUploadStats() {
+        return ResponseEntity.ok(imageUploadQueue.stats());
+    }
+
+    @DeleteMapping("/ai/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> purgeAiCache() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "removed", geminiResultCache.purge(),
+                    "translationsRemoved", translationMemory.purge()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to purge AI cache: " + e.getMessage());
+        }
+    }
+
     @PatchMapping("/{id}")
     @PreAuthorize("hasRole('SELLER')")
     public ResponseEntity<?> partialUpdate(
             @PathVariable("id") Long id,
             @RequestBody ProductUpdateRequest dto) {
         try {
-            return ResponseEntity.ok(service.partialUpdateProduct(id, dto));
+            // A queued upload must not overwrite a new image: cancelled under the PATCH's row lock
+            ProductResponse updated = service.partialUpdateProduct(id, dto, imageUploadQueue::cancel);
+            return ResponseEntity.ok(updated);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Failed to update product: " + e.getMessage());
@@ -146,38 +340,58 @@ public class ProductController {
     public ResponseEntity<?> delete(@PathVariable("id") Long id) {
         try {
             service.deleteProduct(id);
+            imageUploadQueue.cancel(id);
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found or already deleted "+e.getMessage());
         }
     }
 
+    // Queues the auto-fill and returns a job id right away; poll GET /products/ai/auto-fill/{jobId}
     @PostMapping("/ai/auto-fill")
     @PreAuthorize("hasRole('SELLER')")
     public ResponseEntity<?> autoFillProduct(
             @RequestParam("image") MultipartFile image,
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "description", required = false) String text,
-            @RequestParam("price") Double price) {
+            @RequestParam("price") Double price,
+            @RequestParam(value = "allowDuplicate", defaultValue = "false") boolean allowDuplicate) {
 
         try {
             if (image == null || image.isEmpty()) {
                 return ResponseEntity.badRequest().body("Image file is required.");
             }
 
-            System.out.println(name);
-            System.out.println(text);
-            String imageUrl = cloudinaryService.uploadImage(image);
-
-            ProductResponse response = aiOrchestrationService.generateProductMetadata(
-                    image, text, price, imageUrl
-            );
-            System.out.println(response);
-            return ResponseEntity.ok(response);
+            Path staged = fileStaging.stage(image, "autofill-");
+            try {
+                // Caught before any AI call is queued
+                if (!allowDuplicate) {
+                    Optional<Long> duplicateOf = imageDuplicateIndex.findDuplicate(imageProcessingService.imageHash(staged));
+                    if (duplicateOf.isPresent()) {
+                        fileStaging.discard(staged);
+                        return ResponseEntity.status(HttpStatus.CONFLICT)
+                                .body("Possible duplicate of product " + duplicateOf.get());
+                    }
+                }
+                return ResponseEntity.accepted().body(autoFillJobService.submit(staged, text, price));
+            } catch (RuntimeException e) {
+                fileStaging.discard(staged);
+                throw e;
+            }
 
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("AI autofill failed: " + e.getMessage());
         }
     }
+
+    @GetMapping("/ai/auto-fill/{jobId}")
+    @PreAuthorize("hasRole('SELLER')")
+    public ResponseEntity<?> getAutoFillJob(@PathVariable("jobId") String jobId) {
+        try {
+            return ResponseEntity.ok(autoFillJobService.getJob(jobId));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Auto-fill job not found "+e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AutoFillJobResponse {
+    private String jobId;
+    private String status;
+    private ProductResponse product; // present once the job has completed
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Operations are applied in order, all or nothing
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartBatchRequest {
+    @Builder.Default
+    private List<CartOperation> operations = new ArrayList<>();
+}
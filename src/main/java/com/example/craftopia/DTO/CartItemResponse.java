@@ -12,4 +12,5 @@ public class CartItemResponse {
     private String imageUrl;
     private Double price;
     private int quantity;
+    private boolean available; // false once the product is deleted; the line stays so the buyer can see and remove it
 }
@@ -0,0 +1,21 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+// One line edit in a batch cart update
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartOperation {
+
+    public enum Type {
+        SET,    // quantity becomes exactly this; 0 removes the line
+        ADD,    // quantity grows by this
+        REMOVE  // quantity shrinks by this, or the whole line goes when no quantity is given
+    }
+
+    private Type type;
+    private Long productId;
+    private Integer quantity;
+}
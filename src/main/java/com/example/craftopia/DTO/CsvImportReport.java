@@ -0,0 +1,23 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Result of a CSV upload. errors lists the first failed rows (up to products.csv.max-reported-errors);
+// errorsTruncated says there were more, and failed always has the full count.
+// fatalError is set when the file could not be read to the end; the counts then cover the rows before that.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CsvImportReport {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    @Builder.Default
+    private List<CsvRowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    private String fatalError;
+}
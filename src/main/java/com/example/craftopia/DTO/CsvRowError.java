@@ -0,0 +1,12 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CsvRowError {
+    private long row;
+    private String error;
+}
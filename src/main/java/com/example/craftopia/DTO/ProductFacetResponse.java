@@ -0,0 +1,18 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFacetResponse {
+    private long total;
+    private Map<String, Long> categories;
+    private Map<String, Long> styles;
+    private Map<String, Long> tags;
+    private Map<String, Long> priceBands;
+    private boolean warmingUp; // counts not built yet after a restart; everything above is empty
+}
@@ -0,0 +1,15 @@
+package com.example.craftopia.DTO;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPageResponse {
+    private List<ProductResponse> items;
+    private Long nextCursor; // id of the last item, pass back as ?cursor= for the next page
+    private boolean hasMore;
+}
@@ -3,6 +3,7 @@ package com.example.craftopia.DTO;
 import lombok.*;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -14,6 +15,8 @@ public class ProductRequest {
     private Double price;
     private String category;
     private String imageUrl;
+    private Map<String, String> imageVariants;
+    private Long imageHash;
     private List<String> tags;
     private String style;
     private String originalLanguageText;
@@ -3,6 +3,7 @@ package com.example.craftopia.DTO;
 import lombok.*;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -15,6 +16,7 @@ public class ProductResponse {
     private Double price;
     private String category;
     private String imageUrl;
+    private Map<String, String> imageVariants;
     private String sellerEmail;
     private List<String> tags;
     private String style;
@@ -0,0 +1,46 @@
+package com.example.craftopia.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+// A queued AI auto-fill request. Persisted so jobs survive a restart.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "auto_fill_jobs")
+public class AutoFillJob {
+
+    @Id
+    private String id; // UUID handed back to the client
+
+    @Column(nullable = false)
+    private Long sellerId;
+
+    @Enumerated(EnumType.STRING)
+    private AutoFillJobStatus status;
+
+    private String imagePath; // staged upload on local disk, removed when the job finishes
+
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String caption;
+
+    private Double price;
+
+    private Long productId; // set once the product has been created
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
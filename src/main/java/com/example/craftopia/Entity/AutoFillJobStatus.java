@@ -0,0 +1,8 @@
+package com.example.craftopia.Entity;
+
+public enum AutoFillJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
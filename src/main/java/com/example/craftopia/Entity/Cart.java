@@ -3,12 +3,14 @@ package com.example.craftopia.Entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OptimisticLock;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = "user_id")) // one cart per buyer, even when two first adds race
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,7 +27,18 @@ public class Cart {
 
     private boolean isDeleted = false;
 
+    // Guards the cart row itself. Line writes don't bump it: each CartItem carries its own version,
+    // so writers to different lines of one cart never conflict
+    @Version
+    private long version;
+
+    // Denormalized from items so the header badge is one column read; JpaCartStore adjusts them
+    // relatively in the same transaction as the items
+    private int itemCount;      // distinct products
+    private int totalQuantity;  // sum of quantities
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OptimisticLock(excluded = true)
     private List<CartItem> items;
 
     @CreationTimestamp
@@ -0,0 +1,46 @@
+package com.example.craftopia.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+// One run of the catalog re-enrichment backfill, checkpointed after every page so it can resume after a restart
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "enrichment_backfills")
+public class EnrichmentBackfill {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private BackfillStatus status;
+
+    private Long cursor; // every product with id <= cursor has been handled
+
+    private long scanned;
+
+    private long enriched;
+
+    private long skipped; // already had tags, style and translated text
+
+    private long failed;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime startedAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
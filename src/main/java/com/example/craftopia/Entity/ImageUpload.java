@@ -0,0 +1,55 @@
+package com.example.craftopia.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+// A staged image waiting to go to Cloudinary. Persisted so uploads survive a restart.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "image_uploads", indexes = @Index(name = "idx_image_uploads_due", columnList = "owner, status, nextAttemptAt"))
+public class ImageUpload {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private String variant; // null for the main image, otherwise its imageVariants key
+
+    @Column(nullable = false)
+    private String filePath; // staged file on local disk, removed once the upload is settled
+
+    @Column(nullable = false)
+    private String owner; // upload.node-id of the node whose disk holds filePath; only it runs the task
+
+    private boolean fileDiscarded; // set once the owner has deleted the file of a CANCELLED task
+
+    private long imageGeneration; // the product's imageGeneration when queued
+
+    @Enumerated(EnumType.STRING)
+    private ImageUploadStatus status;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private String url;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,9 @@
+package com.example.craftopia.Entity;
+
+public enum ImageUploadStatus {
+    PENDING,
+    UPLOADING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
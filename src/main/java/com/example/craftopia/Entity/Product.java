@@ -5,12 +5,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Entity
 @Table(name = "products")
@@ -36,6 +38,17 @@ public class Product {
 
     private String imageUrl;
 
+    // Smaller renditions of imageUrl keyed by name (e.g. "thumb-160"); one JSON column, so lists need no extra query
+    @Convert(converter = StringMapConverter.class)
+    @Column(columnDefinition = "TEXT")
+    private Map<String, String> imageVariants;
+
+    // 64-bit perceptual hash (dHash) of the image, for spotting re-listed items
+    private Long imageHash;
+
+    // Bumped whenever the seller replaces the image; a background upload only lands for the generation it was queued for
+    private long imageGeneration;
+
     private boolean isDeleted = false;
 
     @CreationTimestamp
@@ -49,6 +62,7 @@ public class Product {
     private User seller;
 
     @ElementCollection
+    @BatchSize(size = 100)
     private List<String> tags = new ArrayList<>();
 
     private String style;
@@ -0,0 +1,32 @@
+package com.example.craftopia.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// One remembered translation to English, keyed by a hash of the normalized source text
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "translation_memory")
+public class TranslationMemoryEntry {
+
+    @Id
+    @Column(length = 64)
+    private String sourceHash; // TranslationMemory.key(sourceText): SHA-256 hex over the prompt version and normalized text
+
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String sourceText;
+
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String translatedText;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -2,6 +2,7 @@ package com.example.craftopia.Entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 
 import java.util.Set;
@@ -19,6 +20,7 @@ public class User {
     private String name;
 
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = 100) // sellers loaded with a product list get their roles in one query
     @JoinTable(
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
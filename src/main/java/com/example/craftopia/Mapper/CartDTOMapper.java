@@ -1,18 +1,39 @@
 package com.example.craftopia.Mapper;
 
 import com.example.craftopia.DTO.CartItemResponse;
-import com.example.craftopia.Entity.CartItem;
+import com.example.craftopia.DTO.ProductResponse;
 import com.example.craftopia.Entity.Product;
 
 public class CartDTOMapper {
 
-    public static CartItemResponse toDTO(CartItem item, Product product) {
+    public static CartItemResponse toDTO(int quantity, Product product) {
         return CartItemResponse.builder()
                 .productId(product.getId())
                 .name(product.getName())
                 .imageUrl(product.getImageUrl())
                 .price(product.getPrice())
-                .quantity(item.getQuantity())
+                .quantity(quantity)
+                .available(!product.isDeleted())
+                .build();
+    }
+
+    public static CartItemResponse toDTO(int quantity, ProductResponse product) {
+        return CartItemResponse.builder()
+                .productId(product.getId())
+                .name(product.getName())
+                .imageUrl(product.getImageUrl())
+                .price(product.getPrice())
+                .quantity(quantity)
+                .available(true)
+                .build();
+    }
+
+    // A line whose product no longer exists at all
+    public static CartItemResponse unavailable(Long productId, int quantity) {
+        return CartItemResponse.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .available(false)
                 .build();
     }
 }
@@ -4,6 +4,9 @@ import com.example.craftopia.DTO.ProductRequest;
 import com.example.craftopia.DTO.ProductResponse;
 import com.example.craftopia.Entity.Product;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
 public class ProductDTOMapper {
 
     public static Product toEntity(ProductRequest dto) {
@@ -13,6 +16,8 @@ public class ProductDTOMapper {
                 .price(dto.getPrice())
                 .category(dto.getCategory())
                 .imageUrl(dto.getImageUrl())
+                .imageVariants(dto.getImageVariants())
+                .imageHash(dto.getImageHash())
                 .tags(dto.getTags())
                 .style(dto.getStyle())
                 .originalLanguageText(dto.getOriginalLanguageText())
@@ -30,7 +35,8 @@ public class ProductDTOMapper {
                 .price(product.getPrice())
                 .category(product.getCategory())
                 .imageUrl(product.getImageUrl())
-                .tags(product.getTags())
+                .imageVariants(product.getImageVariants() != null ? new LinkedHashMap<>(product.getImageVariants()) : null)
+                .tags(product.getTags() != null ? new ArrayList<>(product.getTags()) : null) // detach from the lazy collection
                 .style(product.getStyle())
                 .sellerEmail(sellerEmail)
                 .originalLanguageText(product.getOriginalLanguageText())
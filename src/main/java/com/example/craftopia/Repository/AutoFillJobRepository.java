@@ -0,0 +1,12 @@
+package com.example.craftopia.Repository;
+
+import com.example.craftopia.Entity.AutoFillJob;
+import com.example.craftopia.Entity.AutoFillJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AutoFillJobRepository extends JpaRepository<AutoFillJob, String> {
+    List<AutoFillJob> findByStatusIn(Collection<AutoFillJobStatus> statuses);
+}
@@ -2,6 +2,35 @@ package com.example.craftopia.Repository;
 
 import com.example.craftopia.Entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    // Upsert on the unique (cart_id, product_id) key: a concurrent add to the same line waits for the row lock
+    // and then adds on top, so no increment is lost and no second row appears. An insert starts at version 0.
+    @Transactional
+    @Modifying
+    @Query(value = "insert into cart_item (cart_id, product_id, quantity, version, created_at, updated_at) "
+            + "values (:cartId, :productId, :quantity, 0, now(), now()) "
+            + "on duplicate key update quantity = quantity + values(quantity), version = version + 1, updated_at = now()",
+            nativeQuery = true)
+    int upsertAdd(Long cartId, Long productId, int quantity);
+
+    @Query("select i.version from CartItem i where i.cart.id = :cartId and i.productId = :productId")
+    Optional<Long> findVersion(Long cartId, Long productId);
+
+    @Transactional
+    @Modifying
+    @Query("update CartItem i set i.quantity = i.quantity - 1, i.version = i.version + 1 "
+            + "where i.cart.id = :cartId and i.productId = :productId")
+    int decrement(Long cartId, Long productId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CartItem i where i.cart.id = :cartId and i.productId = :productId and i.quantity <= 0")
+    int deleteIfEmpty(Long cartId, Long productId);
 }
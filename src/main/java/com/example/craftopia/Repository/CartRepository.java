@@ -2,10 +2,37 @@ package com.example.craftopia.Repository;
 
 import com.example.craftopia.Entity.Cart;
 import com.example.craftopia.Entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
+    @EntityGraph(attributePaths = "items")
     Optional<Cart> findByUserIdAndIsDeletedFalse(Long userId);
+
+    @Query("select c.id from Cart c where c.user.id = :userId and c.isDeleted = false")
+    Optional<Long> findIdByUserId(Long userId);
+
+    @Query("select c.totalQuantity from Cart c where c.user.id = :userId and c.isDeleted = false")
+    Optional<Integer> findTotalQuantityByUserId(Long userId);
+
+    // Relative, so concurrent writers to one cart add up instead of overwriting each other; not versioned,
+    // so it doesn't make them conflict either. Runs in the writer's transaction, after its item rows.
+    @Transactional
+    @Modifying
+    @Query("update Cart c set c.itemCount = c.itemCount + :items, c.totalQuantity = c.totalQuantity + :quantity "
+            + "where c.id = :cartId")
+    int addToCounters(Long cartId, int items, int quantity);
+
+    // Carts written before the counters existed; only rows that still read 0 but have items are touched
+    @Transactional
+    @Modifying
+    @Query("update Cart c set c.itemCount = (select count(i) from CartItem i where i.cart = c), "
+            + "c.totalQuantity = (select coalesce(sum(i.quantity), 0) from CartItem i where i.cart = c) "
+            + "where c.itemCount = 0 and exists (select i.id from CartItem i where i.cart = c)")
+    int backfillCounters();
 }
@@ -0,0 +1,10 @@
+package com.example.craftopia.Repository;
+
+import com.example.craftopia.Entity.EnrichmentBackfill;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface EnrichmentBackfillRepository extends JpaRepository<EnrichmentBackfill, Long> {
+    Optional<EnrichmentBackfill> findTopByOrderByIdDesc();
+}
@@ -0,0 +1,50 @@
+package com.example.craftopia.Repository;
+
+import com.example.craftopia.Entity.ImageUpload;
+import com.example.craftopia.Entity.ImageUploadStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// State changes are conditional updates on the current status, so a worker, the poller
+// and a cancel can race on the same row and exactly one of them wins.
+// Claims are per owner: a node only ever runs the tasks whose staged file is on its own disk.
+public interface ImageUploadRepository extends JpaRepository<ImageUpload, Long> {
+
+    List<ImageUpload> findByOwnerAndStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+            String owner, ImageUploadStatus status, LocalDateTime now, Pageable limit);
+
+    List<ImageUpload> findByOwnerAndStatusAndFileDiscardedFalse(String owner, ImageUploadStatus status, Pageable limit);
+
+    List<ImageUpload> findByProductIdAndStatusIn(Long productId, Collection<ImageUploadStatus> statuses);
+
+    long countByStatus(ImageUploadStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("update ImageUpload u set u.status = :to where u.id = :id and u.status = :from")
+    int transition(Long id, ImageUploadStatus from, ImageUploadStatus to);
+
+    @Transactional
+    @Modifying
+    @Query("update ImageUpload u set u.status = :to where u.owner = :owner and u.status = :from")
+    int transitionAll(String owner, ImageUploadStatus from, ImageUploadStatus to);
+
+    @Transactional
+    @Modifying
+    @Query("update ImageUpload u set u.fileDiscarded = true where u.id = :id")
+    int markFileDiscarded(Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update ImageUpload u set u.status = :to, u.attempts = :attempts, u.nextAttemptAt = :nextAttemptAt, "
+            + "u.url = :url, u.error = :error where u.id = :id and u.status = :from")
+    int settle(Long id, ImageUploadStatus from, ImageUploadStatus to, int attempts,
+               LocalDateTime nextAttemptAt, String url, String error);
+}
@@ -2,12 +2,23 @@ package com.example.craftopia.Repository;
 
 import com.example.craftopia.Entity.Order;
 import com.example.craftopia.Entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Optional;
 
 
+// Order reads fetch items and their products in the same query, since OrderDTOMapper walks both
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    @EntityGraph(attributePaths = {"items", "items.product"})
     List<Order> findByUser(User user);
+
+    @Override
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    List<Order> findAll();
+
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsById(Long id);
 }
 
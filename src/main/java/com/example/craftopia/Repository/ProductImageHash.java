@@ -0,0 +1,7 @@
+package com.example.craftopia.Repository;
+
+// Projection for warming the duplicate-image index without loading whole products
+public interface ProductImageHash {
+    Long getId();
+    Long getImageHash();
+}
@@ -0,0 +1,69 @@
+package com.example.craftopia.Repository;
+
+import com.example.craftopia.Entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Bulk inserts for imports. Hibernate cannot batch inserts for IDENTITY ids,
+// so these go through one JDBC batch per call (add rewriteBatchedStatements=true to the MySQL URL).
+@Repository
+public class ProductJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(name, description, price, category, image_url, style, original_language_text, translated_text, "
+            + "is_deleted, created_at, updated_at, seller_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Inserts the products and returns their generated ids, in the same order
+    public List<Long> insertAll(List<Product> products) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keys = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Product p = products.get(i);
+                        ps.setString(1, p.getName());
+                        ps.setString(2, p.getDescription());
+                        if (p.getPrice() != null) ps.setDouble(3, p.getPrice()); else ps.setNull(3, Types.DOUBLE);
+                        ps.setString(4, p.getCategory());
+                        ps.setString(5, p.getImageUrl());
+                        ps.setString(6, p.getStyle());
+                        ps.setString(7, p.getOriginalLanguageText());
+                        ps.setString(8, p.getTranslatedText());
+                        ps.setBoolean(9, p.isDeleted());
+                        ps.setTimestamp(10, now);
+                        ps.setTimestamp(11, now);
+                        if (p.getSeller() != null) ps.setLong(12, p.getSeller().getId()); else ps.setNull(12, Types.BIGINT);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keys);
+
+        return keys.getKeyList().stream()
+                .map(row -> ((Number) row.values().iterator().next()).longValue())
+                .collect(Collectors.toList());
+    }
+}
@@ -2,16 +2,63 @@ package com.example.craftopia.Repository;
 
 import com.example.craftopia.Entity.Product;
 import com.example.craftopia.Entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+// List queries join the seller in (ProductDTOMapper reads its email). Tags are a collection,
+// so they are batch-loaded via @BatchSize instead: a collection fetch join would break LIMIT.
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+    @EntityGraph(attributePaths = "seller")
     List<Product> findByIsDeletedFalse();
 
+    @EntityGraph(attributePaths = "seller")
     List<Product> findByIsDeletedFalseAndCategoryContainingIgnoreCase(String category);
 
+    @EntityGraph(attributePaths = "seller")
     List<Product> findByIsDeletedFalseAndNameContainingIgnoreCase(String keyword);
 
+    @EntityGraph(attributePaths = "seller")
     List<Product> findBySellerAndIsDeletedFalse(User seller);
+
+    @Override
+    @EntityGraph(attributePaths = "seller")
+    List<Product> findAllById(Iterable<Long> ids);
+
+    // Search's database fallback. The count query only runs when the first page comes back full
+    @Override
+    @EntityGraph(attributePaths = "seller")
+    Page<Product> findAll(Specification<Product> spec, Pageable pageable);
+
+    // Ids only, straight from the table: the check behind cart writes, never answered from the product cache
+    @Query("select p.id from Product p where p.id in :ids and p.isDeleted = false")
+    List<Long> findLiveIds(Collection<Long> ids);
+
+    // Keyset pagination: seek past the last seen id instead of OFFSET, so every page costs the same
+    @EntityGraph(attributePaths = "seller")
+    List<Product> findByIsDeletedFalseAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable limit);
+
+    @EntityGraph(attributePaths = "seller")
+    List<Product> findByIsDeletedFalseAndCategoryContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            String category, Long afterId, Pageable limit);
+
+    long countByIsDeletedFalseAndIdGreaterThan(Long afterId);
+
+    @Query("select p.id as id, p.imageHash as imageHash from Product p where p.isDeleted = false and p.imageHash is not null")
+    List<ProductImageHash> findImageHashes();
+
+    // Row lock for read-modify-write of a product from background workers (e.g. concurrent variant uploads)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id = :id")
+    Optional<Product> findByIdForUpdate(Long id);
 }
@@ -0,0 +1,7 @@
+package com.example.craftopia.Repository;
+
+import com.example.craftopia.Entity.TranslationMemoryEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TranslationMemoryRepository extends JpaRepository<TranslationMemoryEntry, String> {
+}
@@ -3,12 +3,20 @@ package com.example.craftopia.Service;
 import com.example.craftopia.DTO.AIGeneratedProductDetails;
 import com.example.craftopia.DTO.ProductRequest;
 import com.example.craftopia.DTO.ProductResponse;
+import com.example.craftopia.Entity.User;
+import com.example.craftopia.Util.LanguageDetector;
+import com.example.craftopia.Util.ProcessedImage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.util.Base64;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AIOrchestrationService {
@@ -19,35 +27,144 @@ public class AIOrchestrationService {
     @Autowired
     public ProductService productService;
 
+    @Autowired
+    public CloudinaryService cloudinaryService;
+
+    @Autowired
+    public ImageProcessingService imageProcessingService;
+
+    @Value("${ai.call-threads:12}")
+    private int callThreads;
+
+    @Value("${ai.timeout.upload-seconds:30}")
+    private long uploadTimeoutSeconds;
+
+    @Value("${ai.timeout.enrich-seconds:25}")
+    private long enrichTimeoutSeconds;
+
+    @Value("${ai.timeout.translate-seconds:15}")
+    private long translateTimeoutSeconds;
+
+    private ExecutorService callExecutor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        callExecutor = Executors.newFixedThreadPool(callThreads,
+                r -> new Thread(r, "ai-call-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callExecutor.shutdownNow();
+    }
+
+    // Runs on an auto-fill worker thread, so the seller is passed in rather than read from the security context.
+    // Upload, image processing and translation start side by side; enrichment and the thumbnail uploads follow
+    // as soon as the processed image is ready. End-to-end latency is the slowest chain, not the sum of the calls.
+    // Every call is a Future on the ai-call pool with its own deadline: one that misses it is cancelled, which
+    // interrupts its thread. A Gemini call gives up its HTTP call and permits on interrupt, and Cloudinary uploads
+    // carry a socket timeout, so a timed-out call never keeps holding a pool thread.
     public ProductResponse generateProductMetadata(
-            MultipartFile image,
+            Path image,
             String text,
             Double price,
-            String imageUrl
-    ) throws IOException {
-
-        String imageBase64 = Base64.getEncoder().encodeToString(image.getBytes());
-
-        // Get enriched product details from Gemini
-        AIGeneratedProductDetails aiDetails = geminiService.enrichProduct(imageBase64, text);
-        // Get translated text
-        String translatedCaption = geminiService.translateText(text);
-
-        System.out.println(translatedCaption);
-
-        // Build ProductRequest to pass to ProductService
-        ProductRequest productRequest = ProductRequest.builder()
-                .name(aiDetails.getEnglishTitle())
-                .description(aiDetails.getEnglishDescription())
-                .price(price)
-                .category(aiDetails.getCategory())
-                .imageUrl(imageUrl)
-                .tags(aiDetails.getTags())
-                .style(aiDetails.getOccasion())
-                .originalLanguageText(text)
-                .translatedText(translatedCaption)
-                .build();
-
-        return productService.createProduct(productRequest);
+            User seller
+    ) {
+        long started = System.nanoTime();
+        long uploadDeadline = started + TimeUnit.SECONDS.toNanos(uploadTimeoutSeconds);
+
+        // English captions skip translation altogether
+        Future<String> translation = LanguageDetector.isEnglish(text)
+                ? CompletableFuture.completedFuture(text)
+                : callExecutor.submit(() -> geminiService.translateText(text));
+        Future<String> upload = callExecutor.submit(() -> cloudinaryService.uploadImage(image.toFile(), uploadTimeoutSeconds));
+        Future<ProcessedImage> processing = callExecutor.submit(() -> {
+            ProcessedImage result = imageProcessingService.process(image);
+            if (Thread.currentThread().isInterrupted()) {
+                imageProcessingService.discard(result); // given up on while it ran: nobody else will clean up
+                throw new InterruptedException();
+            }
+            return result;
+        });
+        Future<Map<String, String>> variants = null;
+        Future<AIGeneratedProductDetails> enrichment = null;
+        ProcessedImage processed = null;
+        try {
+            // Processing already falls back to the original image on its own errors; so does running out of time
+            try {
+                processed = await(processing, uploadDeadline);
+            } catch (ExecutionException | TimeoutException e) {
+                processed = ProcessedImage.passThrough(image);
+            }
+            ProcessedImage ready = processed;
+            long enrichStarted = System.nanoTime();
+            enrichment = callExecutor.submit(() -> geminiService.enrichProduct(ready.getAnalysisImage(), text));
+            variants = callExecutor.submit(() -> cloudinaryService.uploadImages(ready.getThumbnails(), uploadTimeoutSeconds));
+
+            String imageUrl;
+            try {
+                imageUrl = await(upload, uploadDeadline);
+            } catch (TimeoutException e) {
+                // Without an image there is no product; the finally stops the AI calls
+                throw new RuntimeException("Image upload timed out", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Image upload failed: " + e.getCause().getMessage(), e.getCause());
+            }
+
+            // Enrichment and translation already degrade to fallbacks on errors; a timeout degrades the same way
+            AIGeneratedProductDetails aiDetails = awaitOr(enrichment,
+                    enrichStarted + TimeUnit.SECONDS.toNanos(enrichTimeoutSeconds), geminiService.fallbackProductDetails());
+            String translatedCaption = awaitOr(translation,
+                    started + TimeUnit.SECONDS.toNanos(translateTimeoutSeconds), text);
+            // Thumbnails are a nice-to-have: without them the catalog falls back to imageUrl
+            Map<String, String> variantUrls = awaitOr(variants,
+                    enrichStarted + TimeUnit.SECONDS.toNanos(uploadTimeoutSeconds), Map.of());
+
+            // Build ProductRequest to pass to ProductService
+            ProductRequest productRequest = ProductRequest.builder()
+                    .name(aiDetails.getEnglishTitle())
+                    .description(aiDetails.getEnglishDescription())
+                    .price(price)
+                    .category(aiDetails.getCategory())
+                    .imageUrl(imageUrl)
+                    .imageVariants(variantUrls)
+                    .imageHash(processed.getImageHash())
+                    .tags(aiDetails.getTags())
+                    .style(aiDetails.getOccasion())
+                    .originalLanguageText(text)
+                    .translatedText(translatedCaption)
+                    .build();
+
+            return productService.createProduct(productRequest, seller);
+        } finally {
+            // No-ops for the calls that already finished
+            for (Future<?> call : Arrays.asList(translation, upload, processing, enrichment, variants)) {
+                if (call != null) call.cancel(true);
+            }
+            imageProcessingService.discard(processed);
+        }
+    }
+
+    // Waits for the call until the deadline; a call that misses it is cancelled, interrupting its thread
+    private static <T> T await(Future<T> call, long deadlineNanos) throws ExecutionException, TimeoutException {
+        try {
+            return call.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating product metadata", e);
+        }
+    }
+
+    private static <T> T awaitOr(Future<T> call, long deadlineNanos, T fallback) {
+        try {
+            return await(call, deadlineNanos);
+        } catch (ExecutionException | TimeoutException e) {
+            return fallback;
+        }
     }
 }
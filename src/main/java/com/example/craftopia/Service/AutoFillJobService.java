@@ -0,0 +1,153 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.AutoFillJobResponse;
+import com.example.craftopia.DTO.ProductResponse;
+import com.example.craftopia.Entity.AutoFillJob;
+import com.example.craftopia.Entity.AutoFillJobStatus;
+import com.example.craftopia.Entity.User;
+import com.example.craftopia.Repository.AutoFillJobRepository;
+import com.example.craftopia.Repository.UserRepository;
+import com.example.craftopia.Util.FileStaging;
+import com.example.craftopia.Util.SecurityUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs AI auto-fill (image upload + Gemini enrichment + translation) off the request thread.
+// The request only stages the image and records a job; clients poll the job for the result.
+@Service
+public class AutoFillJobService {
+
+    @Autowired private AutoFillJobRepository jobRepo;
+    @Autowired private UserRepository userRepo;
+    @Autowired private SecurityUtil securityUtil;
+    @Autowired private FileStaging fileStaging;
+    @Autowired private AIOrchestrationService aiOrchestrationService;
+    @Autowired private ProductCache productCache;
+
+    @Value("${ai.autofill.workers:4}")
+    private int workers;
+
+    @Value("${ai.autofill.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "autofill-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow(); // unfinished jobs stay QUEUED/RUNNING and are resumed on next start
+    }
+
+    // Takes ownership of the staged image: the job discards it when done
+    public AutoFillJobResponse submit(Path staged, String caption, Double price) {
+        User seller = securityUtil.getCurrentUser();
+
+        AutoFillJob job = jobRepo.save(AutoFillJob.builder()
+                .id(UUID.randomUUID().toString())
+                .sellerId(seller.getId())
+                .status(AutoFillJobStatus.QUEUED)
+                .imagePath(staged.toString())
+                .caption(caption)
+                .price(price)
+                .build());
+
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            fail(job, "Auto-fill queue is full, please retry shortly");
+            throw new RuntimeException("Auto-fill queue is full, please retry shortly");
+        }
+        return toResponse(job);
+    }
+
+    public AutoFillJobResponse getJob(String jobId) {
+        Long sellerId = securityUtil.getCurrentUserId();
+        AutoFillJob job = jobRepo.findById(jobId)
+                .filter(j -> j.getSellerId().equals(sellerId))
+                .orElseThrow(() -> new RuntimeException("Job not found"));
+        return toResponse(job);
+    }
+
+    // Jobs that were queued or mid-flight when the app stopped are picked up again
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<AutoFillJob> unfinished = jobRepo.findByStatusIn(List.of(AutoFillJobStatus.QUEUED, AutoFillJobStatus.RUNNING));
+        for (AutoFillJob job : unfinished) {
+            try {
+                executor.execute(() -> run(job.getId()));
+            } catch (RejectedExecutionException e) {
+                fail(job, "Auto-fill queue was full on restart");
+            }
+        }
+        if (!unfinished.isEmpty()) {
+            System.out.println("Resumed " + unfinished.size() + " auto-fill job(s)");
+        }
+    }
+
+    private void run(String jobId) {
+        AutoFillJob job = jobRepo.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == AutoFillJobStatus.COMPLETED || job.getStatus() == AutoFillJobStatus.FAILED) {
+            return;
+        }
+
+        job.setStatus(AutoFillJobStatus.RUNNING);
+        job = jobRepo.save(job);
+
+        Path image = Path.of(job.getImagePath());
+        try {
+            User seller = userRepo.findById(job.getSellerId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            ProductResponse product = aiOrchestrationService.generateProductMetadata(
+                    image, job.getCaption(), job.getPrice(), seller);
+
+            job.setProductId(product.getId());
+            job.setStatus(AutoFillJobStatus.COMPLETED);
+            jobRepo.save(job);
+            fileStaging.discard(image);
+        } catch (Exception e) {
+            System.err.println("Auto-fill job " + jobId + " failed: " + e.getMessage());
+            fail(job, e.getMessage());
+        }
+    }
+
+    private void fail(AutoFillJob job, String reason) {
+        String error = reason != null ? reason : "Unknown error";
+        job.setStatus(AutoFillJobStatus.FAILED);
+        job.setError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        jobRepo.save(job);
+        fileStaging.discard(Path.of(job.getImagePath()));
+    }
+
+    private AutoFillJobResponse toResponse(AutoFillJob job) {
+        ProductResponse product = job.getProductId() != null
+                ? productCache.get(job.getProductId()).orElse(null)
+                : null;
+
+        return AutoFillJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus().name())
+                .product(product)
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
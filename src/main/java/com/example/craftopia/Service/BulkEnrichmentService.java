@@ -0,0 +1,99 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.AIGeneratedProductDetails;
+import com.example.craftopia.DTO.ProductResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Enriches already-created products with Gemini, several products per request.
+// Each batch is written back to its Product rows as soon as its answer arrives, so a large upload
+// fills in gradually instead of all at once at the end. Pacing comes from Gemini's rate limiter.
+@Service
+public class BulkEnrichmentService {
+
+    @Autowired private GeminiProductEnrichmentService geminiService;
+    @Autowired private ProductService productService;
+
+    @Value("${ai.batch.size:10}")
+    private int batchSize;
+
+    @Value("${ai.batch.workers:2}")
+    private int workers;
+
+    @Value("${ai.batch.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${ai.batch.attempts:2}")
+    private int attempts;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "bulk-enrich-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Queues the products for background enrichment and returns how many of them were queued.
+    // Products that don't fit in the queue are left as they are.
+    public int submit(List<ProductResponse> products) {
+        int queued = 0;
+        for (int from = 0; from < products.size(); from += batchSize) {
+            List<ProductResponse> batch = List.copyOf(products.subList(from, Math.min(from + batchSize, products.size())));
+            try {
+                executor.execute(() -> enrich(batch));
+                queued += batch.size();
+            } catch (RejectedExecutionException e) {
+                System.err.println("Bulk enrichment queue is full, skipping " + (products.size() - from) + " products");
+                break;
+            }
+        }
+        return queued;
+    }
+
+    // Enriches one batch on the calling thread and returns how many products were updated
+    public int enrich(List<ProductResponse> batch) {
+        return tryEnrich(batch).orElse(0);
+    }
+
+    // Like enrich, but empty when the model could not be reached for the batch at all (API down, circuit open),
+    // as opposed to answering without details for some products
+    public OptionalInt tryEnrich(List<ProductResponse> batch) {
+        List<AIGeneratedProductDetails> results = null;
+        for (int attempt = 1; attempt <= attempts && results == null; attempt++) {
+            try {
+                results = geminiService.enrichBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return OptionalInt.empty();
+            } catch (Exception e) {
+                System.err.println("Batch enrichment attempt " + attempt + " failed: " + e.getMessage());
+            }
+        }
+        if (results == null) return OptionalInt.empty();
+
+        int updated = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            AIGeneratedProductDetails details = results.get(i);
+            if (details == null) continue;
+            if (productService.applyEnrichment(batch.get(i).getId(), details).isPresent()) updated++;
+        }
+        System.out.println("Bulk enrichment: updated " + updated + " of " + batch.size() + " products");
+        return OptionalInt.of(updated);
+    }
+}
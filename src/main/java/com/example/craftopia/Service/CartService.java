@@ -1,124 +1,138 @@
 package com.example.craftopia.Service;
 
 import com.example.craftopia.DTO.AddToCartRequest;
+import com.example.craftopia.DTO.CartOperation;
 import com.example.craftopia.DTO.CartItemResponse;
-import com.example.craftopia.Entity.Cart;
-import com.example.craftopia.Entity.CartItem;
+import com.example.craftopia.DTO.ProductResponse;
 import com.example.craftopia.Entity.Product;
-import com.example.craftopia.Entity.User;
 import com.example.craftopia.Mapper.CartDTOMapper;
-import com.example.craftopia.Repository.CartItemRepository;
-import com.example.craftopia.Repository.CartRepository;
 import com.example.craftopia.Repository.ProductRepository;
-import com.example.craftopia.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
+// Cart contents go through CartStore, so the storage mode (database or in-memory write-behind) is a config choice
 @Service
 public class CartService {
 
-    @Autowired private CartRepository cartRepo;
-    @Autowired private CartItemRepository itemRepo;
-    @Autowired private UserRepository userRepository;
+    @Autowired private CartStore cartStore;
     @Autowired private ProductRepository productRepo;
+    @Autowired private ProductCache productCache;
 
-    // Get all cart items for a user
+    // Get all cart items for a user. Products are resolved in one batch, whatever the cart size;
+    // a deleted or missing product comes back as an unavailable line instead of failing the cart.
     public List<CartItemResponse> getCartItems(Long userId) {
-        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId)
+        Map<Long, Integer> lines = cartStore.find(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
+        return toItems(lines);
+    }
+
+    // Applies a whole list of edits (e.g. a client syncing offline changes) in one cart update, so one
+    // transaction and one write of the changed rows. Every product being set or added is checked up front
+    // with one query; if any operation is invalid nothing is applied. Returns the resulting cart.
+    public List<CartItemResponse> applyOperations(Long userId, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new RuntimeException("No cart operations given");
+        }
+
+        Set<Long> added = new HashSet<>();
+        for (CartOperation op : operations) {
+            if (op.getType() == null || op.getProductId() == null) {
+                throw new RuntimeException("Each operation needs a type and a productId");
+            }
+            Integer quantity = op.getQuantity();
+            switch (op.getType()) {
+                case SET -> {
+                    if (quantity == null || quantity < 0) throw new RuntimeException("SET needs a quantity of 0 or more");
+                    if (quantity > 0) added.add(op.getProductId());
+                }
+                case ADD -> {
+                    if (quantity == null || quantity <= 0) throw new RuntimeException("ADD needs a positive quantity");
+                    added.add(op.getProductId());
+                }
+                case REMOVE -> {
+                    if (quantity != null && quantity <= 0) throw new RuntimeException("REMOVE quantity must be positive");
+                }
+            }
+        }
 
-        return cart.getItems().stream()
-                .map(item -> {
-                    Product product = productRepo.findById(item.getProductId())
-                            .orElseThrow(() -> new RuntimeException("Product not found"));
-                    return CartDTOMapper.toDTO(item, product);
-                })
-                .collect(Collectors.toList());
+        // Removing a product that has since been deleted is fine; adding one is not
+        Set<Long> live = added.isEmpty() ? Set.of() : new HashSet<>(productRepo.findLiveIds(added));
+        List<Long> unavailable = added.stream().filter(id -> !live.contains(id)).sorted().toList();
+        if (!unavailable.isEmpty()) {
+            throw new RuntimeException("Products not available: " + unavailable);
+        }
+
+        Map<Long, Integer> lines = cartStore.update(userId, current -> {
+            for (CartOperation op : operations) {
+                Long productId = op.getProductId();
+                switch (op.getType()) {
+                    case SET -> current.put(productId, op.getQuantity());
+                    case ADD -> current.merge(productId, op.getQuantity(), Integer::sum);
+                    // A line already gone is not an error: the client may be replaying an edit made elsewhere too
+                    case REMOVE -> current.computeIfPresent(productId, (id, quantity) ->
+                            op.getQuantity() == null || quantity <= op.getQuantity() ? null : quantity - op.getQuantity());
+                }
+            }
+            current.values().removeIf(quantity -> quantity <= 0);
+        });
+        return toItems(lines);
     }
 
-    // Add item to user's cart
-    public void addToCart(Long userId, AddToCartRequest req) {
-        // Step 1: Ensure product exists and is not deleted
-        Product product = productRepo.findById(req.getProductId())
-                .filter(p -> !p.isDeleted())
-                .orElseThrow(() -> new RuntimeException("Product not available"));
-
-        // Step 2: Fetch or create the user's cart
-        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(userRepository.findById(userId)
-                            .orElseThrow(() -> new RuntimeException("User not found")));
-                    newCart.setItems(new ArrayList<>()); // Ensure it's initialized
-                    return cartRepo.save(newCart);
-                });
-
-        // Step 3: Null safety for items list if cart already existed
-        if (cart.getItems() == null) {
-            cart.setItems(new ArrayList<>());
+    // Display only: a line whose product was just deleted elsewhere may still show as available for a while,
+    // but placing the order re-reads every product row
+    private List<CartItemResponse> toItems(Map<Long, Integer> lines) {
+        Map<Long, ProductResponse> live = productCache.getAll(lines.keySet());
+
+        // Deleted products still have a row, so the buyer can see what it was; one more query, only when needed
+        Map<Long, Product> gone = Map.of();
+        if (live.size() < lines.size()) {
+            List<Long> missing = lines.keySet().stream().filter(id -> !live.containsKey(id)).toList();
+            gone = productRepo.findAllById(missing).stream().collect(Collectors.toMap(Product::getId, p -> p));
+        }
+
+        List<CartItemResponse> items = new ArrayList<>(lines.size());
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            ProductResponse product = live.get(line.getKey());
+            Product deleted = gone.get(line.getKey());
+            if (product != null) {
+                items.add(CartDTOMapper.toDTO(line.getValue(), product));
+            } else if (deleted != null) {
+                items.add(CartDTOMapper.toDTO(line.getValue(), deleted));
+            } else {
+                items.add(CartDTOMapper.unavailable(line.getKey(), line.getValue()));
+            }
         }
+        return items;
+    }
 
-        // Step 4: Check if item already exists in cart
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(i -> i.getProductId().equals(req.getProductId()))
-                .findFirst();
-
-        if (existingItem.isPresent()) {
-            existingItem.get().setQuantity(existingItem.get().getQuantity() + req.getQuantity());
-        } else {
-            CartItem item = CartItem.builder()
-                    .productId(req.getProductId())
-                    .quantity(req.getQuantity())
-                    .cart(cart)
-                    .build();
-            cart.getItems().add(item);
+    // Add item to user's cart
+    public void addToCart(Long userId, AddToCartRequest req) {
+        // Ensure product exists and is not deleted: checked on the table, since a cache on another node
+        // may not have heard of the delete yet
+        if (productRepo.findLiveIds(List.of(req.getProductId())).isEmpty()) {
+            throw new RuntimeException("Product not available");
         }
 
-        cartRepo.save(cart);
+        // Creates the cart if the user has none; an existing line just grows
+        cartStore.add(userId, req.getProductId(), req.getQuantity());
     }
 
-    // Get Item Count in Cart
     // Get total quantity of items in Cart
     public int getCartItemCount(Long userId) {
-        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId)
+        return cartStore.totalQuantity(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
-        return cart.getItems().stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
     }
 
     // Remove a product from the user's cart
     public void removeFromCart(Long userId, Long productId) {
-        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        Optional<CartItem> itemOpt = cart.getItems().stream()
-                .filter(item -> item.getProductId().equals(productId))
-                .findFirst();
-
-        if (itemOpt.isPresent()) {
-            CartItem item = itemOpt.get();
-            if (item.getQuantity() > 1) {
-                item.setQuantity(item.getQuantity() - 1); // decrement quantity
-            } else {
-                cart.getItems().remove(item); // remove item completely if quantity == 1
-            }
-            cartRepo.save(cart);
-        } else {
-            throw new RuntimeException("Product not found in cart");
-        }
+        cartStore.removeOne(userId, productId);
     }
 
     // Clear the user's cart
     public void clearCart(Long userId) {
-        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        itemRepo.deleteAll(cart.getItems());
-        cart.getItems().clear();
-        cartRepo.save(cart);
+        cartStore.update(userId, Map::clear);
     }
 }
@@ -0,0 +1,46 @@
+package com.example.craftopia.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Where cart contents live. A cart is seen as its lines, productId -> quantity, in the order they were added.
+// JpaCartStore (the default) reads and writes the Cart/CartItem tables on every call;
+// cart.store=memory switches to InMemoryCartStore, which serves from memory and writes behind.
+public interface CartStore {
+
+    // The user's lines, or empty if the user has no cart
+    Optional<Map<Long, Integer>> find(Long userId);
+
+    // Applies change to the user's lines as one atomic step (creating the cart if needed) and returns the result.
+    // If change throws, nothing is written. Called inside a transaction, the change commits or rolls back with it:
+    // JpaCartStore writes in that transaction, InMemoryCartStore applies the change once it has committed.
+    // The change may run more than once, so it must only touch the map it is given.
+    Map<Long, Integer> update(Long userId, Consumer<Map<Long, Integer>> change);
+
+    // Adds quantity to one line, creating the cart and the line if needed. Same atomicity as update;
+    // a store can do it without reading the cart first.
+    default void add(Long userId, Long productId, int quantity) {
+        update(userId, lines -> lines.merge(productId, quantity, Integer::sum));
+    }
+
+    // Takes one off a line, dropping the line at zero; fails if the product is not in the cart
+    default void removeOne(Long userId, Long productId) {
+        update(userId, lines -> {
+            Integer quantity = lines.get(productId);
+            if (quantity == null) {
+                throw new RuntimeException("Product not found in cart");
+            }
+            if (quantity > 1) {
+                lines.put(productId, quantity - 1); // decrement quantity
+            } else {
+                lines.remove(productId); // remove item completely if quantity == 1
+            }
+        });
+    }
+
+    // Sum of the quantities, or empty if the user has no cart
+    default Optional<Integer> totalQuantity(Long userId) {
+        return find(userId).map(lines -> lines.values().stream().mapToInt(Integer::intValue).sum());
+    }
+}
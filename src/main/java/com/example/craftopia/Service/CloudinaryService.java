@@ -2,21 +2,28 @@ package com.example.craftopia.Service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.craftopia.Util.FileStaging;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Service
 public class CloudinaryService {
 
     private final Cloudinary cloudinary;
+    private final FileStaging fileStaging;
 
     @Autowired
-    public CloudinaryService(Cloudinary cloudinary) {
+    public CloudinaryService(Cloudinary cloudinary, FileStaging fileStaging) {
         this.cloudinary = cloudinary;
+        this.fileStaging = fileStaging;
     }
 
     public String uploadImage(MultipartFile file){
@@ -24,12 +31,51 @@ public class CloudinaryService {
             throw new IllegalArgumentException("Image file is empty");
         }
 
+        // Spooled to disk once and uploaded from there, rather than read into a byte[]
+        Path staged = fileStaging.stage(file, "upload-");
+        try {
+            return uploadImage(staged.toFile());
+        } finally {
+            fileStaging.discard(staged);
+        }
+    }
+
+    // Upload from a file on disk; the SDK streams it instead of holding it in memory
+    public String uploadImage(File file) {
+        return upload(file, ObjectUtils.emptyMap());
+    }
+
+    // Same, but a stalled connection gives up after timeoutSeconds without data instead of holding its thread
+    public String uploadImage(File file, long timeoutSeconds) {
+        return upload(file, ObjectUtils.asMap("timeout", (int) timeoutSeconds));
+    }
+
+    private String upload(File file, Map options) {
         Map uploadResult = null;
         try {
-            uploadResult = cloudinary.uploader().upload(file.getBytes(), ObjectUtils.emptyMap());
+            uploadResult = cloudinary.uploader().upload(file, options);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException("Cloudinary upload failed for " + file.getName(), e);
+        }
+        return uploadResult.get("secure_url").toString();
+    }
+
+    // Uploads each variant file and returns variant name -> URL, in the same order
+    public Map<String, String> uploadImages(Map<String, Path> variants) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        variants.forEach((name, file) -> urls.put(name, uploadImage(file.toFile())));
+        return urls;
+    }
+
+    // Same, with a timeout per upload; stops between uploads once the calling thread is interrupted
+    public Map<String, String> uploadImages(Map<String, Path> variants, long timeoutSeconds) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> variant : variants.entrySet()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Variant upload cancelled");
+            }
+            urls.put(variant.getKey(), uploadImage(variant.getValue().toFile(), timeoutSeconds));
         }
-        return uploadResult.get("secure_url").toString(); // or "url" for non-https
+        return urls;
     }
 }
@@ -0,0 +1,282 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.ProductPageResponse;
+import com.example.craftopia.DTO.ProductResponse;
+import com.example.craftopia.Entity.BackfillStatus;
+import com.example.craftopia.Entity.EnrichmentBackfill;
+import com.example.craftopia.Repository.EnrichmentBackfillRepository;
+import com.example.craftopia.Repository.ProductRepository;
+import com.example.craftopia.Util.LanguageDetector;
+import com.example.craftopia.Util.TokenBucketRateLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Re-enriches the existing catalog (mostly CSV imports without tags, style or translation) in the background.
+// One coordinator walks live products in id order a page at a time and splits each page across the worker pool;
+// once every slice is done the page's last id is saved as the checkpoint, so a restart resumes right after it.
+// Calls are paced by a backfill limiter on top of GeminiClient's own, so live auto-fill traffic keeps headroom.
+// A page is only checkpointed once every slice of it got an answer from the model: while Gemini is down the
+// run waits on the same page, so an outage delays the backfill instead of silently skipping part of the catalog.
+@Service
+public class EnrichmentBackfillService {
+
+    @Autowired private EnrichmentBackfillRepository backfillRepo;
+    @Autowired private ProductRepository productRepo;
+    @Autowired private ProductCatalogScanner catalogScanner;
+    @Autowired private BulkEnrichmentService bulkEnrichmentService;
+    @Autowired private GeminiClient geminiClient;
+
+    @Value("${ai.backfill.workers:2}")
+    private int workers;
+
+    // Gemini batch requests per minute for the backfill alone; 0 leaves pacing to GeminiClient
+    @Value("${ai.backfill.requests-per-minute:20}")
+    private int requestsPerMinute;
+
+    // Products per Gemini request, shared with bulk uploads
+    @Value("${ai.batch.size:10}")
+    private int batchSize;
+
+    // Delay before retrying a page whose slices failed; doubles per attempt up to retry-max-ms
+    @Value("${ai.backfill.retry-base-ms:30000}")
+    private long retryBaseMs;
+
+    @Value("${ai.backfill.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    // Failed tries of one page while the API looked healthy before the run stops as FAILED (it resumes from
+    // that page). Waiting out an open circuit doesn't count.
+    @Value("${ai.backfill.page-attempts:5}")
+    private int pageAttempts;
+
+    private ExecutorService coordinator;
+    private ExecutorService workerPool;
+    private TokenBucketRateLimiter rateLimiter;
+
+    private volatile Long activeId;
+    private volatile boolean stopRequested;
+
+    // Throughput of the current process's run; the totals live on the checkpoint row
+    private final AtomicLong sessionScanned = new AtomicLong();
+    private final AtomicLong sessionEnriched = new AtomicLong();
+    private volatile long sessionStartMillis;
+
+    @PostConstruct
+    void init() {
+        coordinator = Executors.newSingleThreadExecutor(r -> new Thread(r, "backfill-coordinator"));
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, r -> new Thread(r, "backfill-" + threadCount.incrementAndGet()));
+        rateLimiter = new TokenBucketRateLimiter(requestsPerMinute, 0);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow(); // the run stays RUNNING and is resumed from its checkpoint on next start
+        workerPool.shutdownNow();
+    }
+
+    // A run that was in progress when the app stopped carries on from its checkpoint
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        backfillRepo.findTopByOrderByIdDesc()
+                .filter(b -> b.getStatus() == BackfillStatus.RUNNING)
+                .ifPresent(b -> {
+                    System.out.println("Resuming enrichment backfill " + b.getId() + " after product " + b.getCursor());
+                    launch(b);
+                });
+    }
+
+    // Continues the last stopped run unless restart is set, in which case the catalog is walked from the start
+    public synchronized Map<String, Object> start(boolean restart) {
+        if (activeId != null) throw new RuntimeException("A backfill is already running");
+
+        EnrichmentBackfill backfill = backfillRepo.findTopByOrderByIdDesc()
+                .filter(b -> !restart && b.getStatus() == BackfillStatus.STOPPED)
+                .orElseGet(() -> EnrichmentBackfill.builder().cursor(0L).build());
+        backfill.setStatus(BackfillStatus.RUNNING);
+        backfill.setError(null);
+        backfill.setFinishedAt(null);
+        launch(backfillRepo.save(backfill));
+        return status();
+    }
+
+    // Takes effect once the page in progress is checkpointed
+    public synchronized Map<String, Object> stop() {
+        if (activeId == null) throw new RuntimeException("No backfill is running");
+        stopRequested = true;
+        return status();
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        EnrichmentBackfill backfill = backfillRepo.findTopByOrderByIdDesc().orElse(null);
+        if (backfill == null) {
+            status.put("status", "NEVER_RUN");
+            return status;
+        }
+
+        long remaining = backfill.getStatus() == BackfillStatus.COMPLETED
+                ? 0 : productRepo.countByIsDeletedFalseAndIdGreaterThan(backfill.getCursor());
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - sessionStartMillis);
+
+        status.put("id", backfill.getId());
+        status.put("status", backfill.getStatus().name());
+        status.put("stopRequested", stopRequested);
+        status.put("cursor", backfill.getCursor());
+        status.put("scanned", backfill.getScanned());
+        status.put("enriched", backfill.getEnriched());
+        status.put("skipped", backfill.getSkipped());
+        status.put("failed", backfill.getFailed());
+        status.put("remaining", remaining);
+        status.put("progress", backfill.getScanned() + remaining == 0
+                ? 1.0 : (double) backfill.getScanned() / (backfill.getScanned() + remaining));
+        if (activeId != null) {
+            status.put("productsPerMinute", sessionScanned.get() * 60_000.0 / elapsedMillis);
+            status.put("enrichedPerMinute", sessionEnriched.get() * 60_000.0 / elapsedMillis);
+        }
+        status.put("workers", workers);
+        status.put("error", backfill.getError());
+        status.put("startedAt", backfill.getStartedAt());
+        status.put("updatedAt", backfill.getUpdatedAt());
+        status.put("finishedAt", backfill.getFinishedAt());
+        return status;
+    }
+
+    private void launch(EnrichmentBackfill backfill) {
+        activeId = backfill.getId();
+        stopRequested = false;
+        sessionScanned.set(0);
+        sessionEnriched.set(0);
+        sessionStartMillis = System.currentTimeMillis();
+        coordinator.execute(() -> run(backfill));
+    }
+
+    private void run(EnrichmentBackfill backfill) {
+        int failedTries = 0;
+        int carriedEnriched = 0; // updated by earlier, incomplete tries of the current page
+        try {
+            while (!stopRequested) {
+                ProductPageResponse page = catalogScanner.fetchPage(backfill.getCursor(), batchSize * workers, null);
+                List<ProductResponse> products = page.getItems();
+                if (!products.isEmpty()) {
+                    List<ProductResponse> pending = products.stream()
+                            .filter(EnrichmentBackfillService::needsEnrichment)
+                            .toList();
+                    AtomicInteger updated = new AtomicInteger();
+                    boolean complete = enrichAcrossWorkers(pending, updated);
+
+                    // Some slice never reached the model: keep the checkpoint and retry the page. Products that did
+                    // get enriched no longer need it and drop out of the retry.
+                    if (!complete) {
+                        carriedEnriched += updated.get();
+                        boolean apiDown = !geminiClient.isAvailable();
+                        if (!apiDown && ++failedTries >= pageAttempts) {
+                            finish(backfill, BackfillStatus.FAILED,
+                                    "Enrichment keeps failing for the products after " + backfill.getCursor());
+                            return;
+                        }
+                        waitBeforeRetry(Math.max(failedTries, 1));
+                        continue;
+                    }
+                    int enriched = carriedEnriched + updated.get();
+                    int attempted = pending.size() + carriedEnriched;
+                    failedTries = 0;
+                    carriedEnriched = 0;
+
+                    backfill.setCursor(products.get(products.size() - 1).getId());
+                    backfill.setScanned(backfill.getScanned() + products.size());
+                    backfill.setSkipped(backfill.getSkipped() + products.size() - attempted);
+                    backfill.setEnriched(backfill.getEnriched() + enriched);
+                    backfill.setFailed(backfill.getFailed() + attempted - enriched);
+                    backfill = backfillRepo.save(backfill);
+                    sessionScanned.addAndGet(products.size());
+                    sessionEnriched.addAndGet(enriched);
+                }
+
+                if (!page.isHasMore()) {
+                    finish(backfill, BackfillStatus.COMPLETED, null);
+                    return;
+                }
+            }
+            finish(backfill, BackfillStatus.STOPPED, null);
+        } catch (InterruptedException e) {
+            // Shutting down; left RUNNING so the next start resumes from the last checkpoint
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (coordinator.isShutdown()) return; // a query cut short by shutdown, not a real failure
+            System.err.println("Enrichment backfill " + backfill.getId() + " failed: " + e.getMessage());
+            finish(backfill, BackfillStatus.FAILED, e.getMessage());
+        } finally {
+            activeId = null;
+            stopRequested = false;
+        }
+    }
+
+    // One Gemini batch per slice, run side by side; adds the products updated to `enriched` and
+    // returns false if any slice could not get an answer from the model
+    private boolean enrichAcrossWorkers(List<ProductResponse> products, AtomicInteger enriched) throws InterruptedException {
+        List<Future<OptionalInt>> slices = new ArrayList<>();
+        for (int from = 0; from < products.size(); from += batchSize) {
+            List<ProductResponse> slice = products.subList(from, Math.min(from + batchSize, products.size()));
+            slices.add(workerPool.submit(() -> {
+                rateLimiter.acquire(0);
+                return bulkEnrichmentService.tryEnrich(slice);
+            }));
+        }
+
+        boolean complete = true;
+        for (Future<OptionalInt> slice : slices) {
+            try {
+                OptionalInt updated = slice.get();
+                if (updated.isPresent()) enriched.addAndGet(updated.getAsInt()); else complete = false;
+            } catch (ExecutionException e) {
+                System.err.println("Backfill slice failed: " + e.getCause());
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    // Backs off, and keeps waiting while the circuit is open; wakes early for stop()
+    private void waitBeforeRetry(int attempt) throws InterruptedException {
+        long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+        long until = System.currentTimeMillis() + delay;
+        while (!stopRequested && (System.currentTimeMillis() < until || !geminiClient.isAvailable())) {
+            Thread.sleep(1000);
+        }
+    }
+
+    private void finish(EnrichmentBackfill backfill, BackfillStatus status, String error) {
+        backfill.setStatus(status);
+        backfill.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        backfill.setFinishedAt(LocalDateTime.now());
+        backfillRepo.save(backfill);
+        System.out.println("Enrichment backfill " + backfill.getId() + " " + status.name().toLowerCase()
+                + ": scanned " + backfill.getScanned() + ", enriched " + backfill.getEnriched());
+    }
+
+    private static boolean needsEnrichment(ProductResponse product) {
+        return product.getTags() == null || product.getTags().isEmpty()
+                || isBlank(product.getStyle())
+                || (isBlank(product.getTranslatedText()) && !LanguageDetector.isEnglish(product.getDescription()));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.Util.AimdConcurrencyLimiter;
+import com.example.craftopia.Util.CircuitBreaker;
+import com.example.craftopia.Util.TokenBucketRateLimiter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import okhttp3.*;
+import okio.BufferedSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Transport for every Gemini generateContent call, with the guards that keep a slow or failing API
+// from taking the app down with it: connect/read timeouts, the shared quota limiter, an adaptive
+// cap on in-flight calls and a circuit breaker. Refused calls throw IllegalStateException without
+// reaching the API (at most after a short, bounded wait for quota), and callers answer with their fallback.
+// A caller that gives up on a call by interrupting its thread (a timed-out task being cancelled) cancels the
+// HTTP call too, so the socket and the permits are freed at once rather than when the read timeout fires.
+// Connections are pooled and kept alive (HTTP/2 where the server offers it). Request bodies are
+// generated straight onto the socket and the answer text is pulled out of the response stream,
+// so a large inline image is never held as a whole request or response String.
+@Component
+public class GeminiClient {
+
+    private static final double CONCURRENCY_BACKOFF_RATIO = 0.5;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    // Writes the generateContent request body; may be called again if OkHttp retries the request
+    @FunctionalInterface
+    public interface RequestWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    @Value("${gemini.api.key}")
+    private String apiKey;
+
+    @Value("${gemini.api.url:https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent}")
+    private String apiUrl;
+
+    @Value("${gemini.timeout.connect-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${gemini.timeout.read-ms:30000}")
+    private int readTimeoutMs;
+
+    @Value("${gemini.http.max-idle-connections:8}")
+    private int maxIdleConnections;
+
+    @Value("${gemini.http.keep-alive-seconds:300}")
+    private long keepAliveSeconds;
+
+    // Shared by every call, since the quota is per API key
+    @Value("${gemini.rate.requests-per-minute:15}")
+    private int requestsPerMinute;
+
+    @Value("${gemini.rate.tokens-per-minute:1000000}")
+    private long tokensPerMinute;
+
+    // Longest a call waits for quota; past that it is refused like any other busy call
+    @Value("${gemini.rate.max-wait-ms:2000}")
+    private long maxRateWaitMs;
+
+    @Value("${gemini.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${gemini.breaker.open-ms:30000}")
+    private long openMs;
+
+    @Value("${gemini.concurrency.initial:4}")
+    private int initialConcurrency;
+
+    @Value("${gemini.concurrency.min:1}")
+    private int minConcurrency;
+
+    @Value("${gemini.concurrency.max:16}")
+    private int maxConcurrency;
+
+    // A success slower than this still counts against the concurrency limit
+    @Value("${gemini.concurrency.slow-call-ms:15000}")
+    private long slowCallMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OkHttpClient httpClient;
+    private TokenBucketRateLimiter rateLimiter;
+    private CircuitBreaker circuitBreaker;
+    private AimdConcurrencyLimiter concurrencyLimiter;
+
+    @PostConstruct
+    void init() {
+        // Calls run on the dispatcher so the calling thread waits interruptibly; the concurrency limiter is the real cap
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrency);
+        dispatcher.setMaxRequestsPerHost(maxConcurrency);
+
+        httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .build();
+
+        rateLimiter = new TokenBucketRateLimiter(requestsPerMinute, tokensPerMinute);
+        circuitBreaker = new CircuitBreaker("gemini", failureThreshold, openMs);
+        concurrencyLimiter = new AimdConcurrencyLimiter(initialConcurrency, minConcurrency, maxConcurrency,
+                slowCallMs, CONCURRENCY_BACKOFF_RATIO);
+    }
+
+    // False while the circuit is open: callers can skip straight to their fallback
+    public boolean isAvailable() {
+        return !circuitBreaker.isOpen();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    public String generateContent(Map<String, Object> requestBody, long estimatedTokens) throws Exception {
+        return generateContent(generator -> objectMapper.writeValue(generator, requestBody), estimatedTokens);
+    }
+
+    // Returns candidates[0].content.parts[0].text of the response
+    public String generateContent(RequestWriter requestWriter, long estimatedTokens) throws Exception {
+        // The cheap refusals come first, so a call that would be turned away never waits for quota
+        if (!circuitBreaker.allowRequest()) throw new IllegalStateException("Gemini circuit is open");
+        if (!concurrencyLimiter.tryAcquire()) {
+            circuitBreaker.release();
+            throw new IllegalStateException("Gemini concurrency limit reached");
+        }
+
+        // Every permit taken above ends in exactly one verdict, or is handed back without one in the finally
+        boolean settled = false;
+        try {
+            if (!rateLimiter.tryAcquire(estimatedTokens, maxRateWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Gemini rate limit reached");
+            }
+
+            Request request = new Request.Builder()
+                    .url(apiUrl + "?key=" + apiKey)
+                    .post(new StreamingJsonBody(requestWriter))
+                    .build();
+
+            long start = System.currentTimeMillis();
+            Call call = httpClient.newCall(request);
+            Response response;
+            try {
+                response = execute(call);
+            } catch (RequestWriteException e) {
+                // Our own body failed (e.g. a staged image already deleted): says nothing about the API
+                throw new IOException("Failed to write Gemini request: " + e.getCause().getMessage(), e.getCause());
+            } catch (IOException e) {
+                if (call.isCanceled()) throw e; // we gave up on it, the API didn't fail
+                // Connect/read timeouts and dropped connections
+                settled = true;
+                circuitBreaker.recordFailure();
+                concurrencyLimiter.onFailure();
+                throw e;
+            }
+
+            try (response) {
+                if (!response.isSuccessful()) {
+                    settled = true;
+                    if (response.code() == 429 || response.code() >= 500) {
+                        circuitBreaker.recordFailure();
+                        concurrencyLimiter.onFailure();
+                    } else {
+                        // Any other 4xx is our request's fault, not a sign the API is unhealthy
+                        circuitBreaker.recordSuccess();
+                        concurrencyLimiter.onIgnored();
+                    }
+                    throw new RuntimeException("Gemini API call failed: " + response.code());
+                }
+
+                // Health is judged on time to the response headers; the body is parsed as it streams in
+                settled = true;
+                circuitBreaker.recordSuccess();
+                concurrencyLimiter.onSuccess(System.currentTimeMillis() - start);
+                try (InputStream in = response.body().byteStream();
+                     JsonParser parser = objectMapper.getFactory().createParser(in)) {
+                    return extractText(parser);
+                }
+            }
+        } finally {
+            if (!settled) {
+                // Failed before the API answered for itself; frees the slot and a half-open probe
+                circuitBreaker.release();
+                concurrencyLimiter.onIgnored();
+            }
+        }
+    }
+
+    // Like call.execute(), except that interrupting the waiting thread cancels the call
+    private static Response execute(Call call) throws IOException {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failed, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call answered, Response response) {
+                if (!result.complete(response)) response.close(); // nobody is waiting for it any more
+            }
+        });
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            call.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Gemini call cancelled");
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause(); // onFailure is the only way to fail it
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("circuit", circuitBreaker.getState());
+        result.put("concurrencyLimit", concurrencyLimiter.getLimit());
+        result.put("inFlight", concurrencyLimiter.getInFlight());
+        return result;
+    }
+
+    // Walks to candidates[0].content.parts[0].text without building a tree; everything else is skipped
+    static String extractText(JsonParser parser) throws IOException {
+        parser.nextToken();
+        if (enterField(parser, "candidates") && enterFirstElement(parser)
+                && enterField(parser, "content") && enterField(parser, "parts")
+                && enterFirstElement(parser) && enterField(parser, "text")
+                && parser.currentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        throw new IOException("Gemini response has no candidate text");
+    }
+
+    // From an object's START_OBJECT, advances to the value of `name`
+    private static boolean enterField(JsonParser parser, String name) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) return false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals(field)) return true;
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    // From an array's START_ARRAY, advances to its first element
+    private static boolean enterFirstElement(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.START_ARRAY && parser.nextToken() != JsonToken.END_ARRAY;
+    }
+
+    private class StreamingJsonBody extends RequestBody {
+        private final RequestWriter requestWriter;
+
+        StreamingJsonBody(RequestWriter requestWriter) {
+            this.requestWriter = requestWriter;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            SinkStream out = new SinkStream(sink.outputStream());
+            // Closing the generator flushes it; the sink itself belongs to OkHttp
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                requestWriter.write(generator);
+            } catch (IOException | RuntimeException e) {
+                if (out.failed) throw e; // the connection broke under us
+                throw new RequestWriteException(e);
+            }
+        }
+    }
+
+    // Remembers whether an exception came from the socket rather than from the request writer
+    private static class SinkStream extends FilterOutputStream {
+        boolean failed;
+
+        SinkStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    // A RequestWriter failure, carried out through OkHttp as an IOException so it can be told apart
+    private static class RequestWriteException extends IOException {
+        RequestWriteException(Exception cause) {
+            super(cause);
+        }
+    }
+}
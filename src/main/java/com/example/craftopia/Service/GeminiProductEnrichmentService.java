@@ -1,33 +1,70 @@
 package com.example.craftopia.Service;
 
 import com.example.craftopia.DTO.AIGeneratedProductDetails;
+import com.example.craftopia.DTO.ProductResponse;
+import com.example.craftopia.Util.LanguageDetector;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class GeminiProductEnrichmentService {
 
-    @Value("${gemini.api.key}")
-    private String apiKey;
+    // Part of every cache key: bump it whenever a prompt changes so old answers are not reused
+    static final String PROMPT_VERSION = "v1";
 
-    @Value("${gemini.api.url:https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent}")
-    private String apiUrl;
+    // Rough cost model for the rate limiter: ~4 characters per token, and a fixed cost per inline image
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int IMAGE_TOKENS = 258;
+    private static final int ENRICH_OUTPUT_TOKENS = 1000;
+    private static final int BATCH_OUTPUT_TOKENS_PER_PRODUCT = 400;
+
+    @Autowired
+    private GeminiResultCache resultCache;
+
+    @Autowired
+    private GeminiClient geminiClient;
+
+    @Autowired
+    private TranslationMemory translationMemory;
 
-    private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public AIGeneratedProductDetails enrichProduct(String imageBase64, String userCaption) {
+    // The image is read from disk twice (hash, then request) but never held in memory as a whole
+    public AIGeneratedProductDetails enrichProduct(Path image, String userCaption) {
+        String cacheKey;
+        try {
+            cacheKey = GeminiResultCache.key(image, "enrich", PROMPT_VERSION, userCaption);
+        } catch (UncheckedIOException e) {
+            System.err.println("Cannot read image for enrichment: " + e.getMessage());
+            return createFallbackProductDetails(userCaption);
+        }
+        AIGeneratedProductDetails cached = resultCache.get(cacheKey).map(this::readCachedDetails).orElse(null);
+        if (cached != null) return cached;
+        if (!geminiClient.isAvailable()) return createFallbackProductDetails(userCaption);
+
         try {
             String prompt = createEnrichmentPrompt(userCaption);
-            String response = callGeminiAPI(prompt, imageBase64);
-            return parseProductDetails(response);
+            String response = callGeminiAPI(prompt, image);
+            AIGeneratedProductDetails details = parseProductDetails(response);
+            resultCache.put(cacheKey, objectMapper.writeValueAsString(details));
+            return details;
+        } catch (IllegalStateException e) {
+            System.err.println("Gemini unavailable, using fallback details: " + e.getMessage());
+            return createFallbackProductDetails(userCaption);
         } catch (Exception e) {
             System.err.println("Error enriching product: " + e.getMessage());
             e.printStackTrace();
@@ -35,6 +72,14 @@ public class GeminiProductEnrichmentService {
         }
     }
 
+    private AIGeneratedProductDetails readCachedDetails(String json) {
+        try {
+            return objectMapper.readValue(json, AIGeneratedProductDetails.class);
+        } catch (Exception e) {
+            return null; // unreadable entry: treat as a miss
+        }
+    }
+
     private String createEnrichmentPrompt(String userCaption) {
         return String.format("""
                 You are helping a rural artisan sell their handmade product online.
@@ -64,45 +109,116 @@ public class GeminiProductEnrichmentService {
                 """, userCaption != null ? userCaption : "No caption provided");
     }
 
-    private String callGeminiAPI(String prompt, String imageBase64) throws Exception {
-        String url = apiUrl + "?key=" + apiKey;
+    // Text-only enrichment of several existing products in one request. The model answers with a
+    // JSON array; the result has one entry per input, null where the model skipped or garbled it.
+    // Not cached and no fallback: on failure it throws, and the caller decides what to retry.
+    public List<AIGeneratedProductDetails> enrichBatch(List<ProductResponse> products) throws Exception {
+        ArrayNode items = objectMapper.createArrayNode();
+        for (int i = 0; i < products.size(); i++) {
+            ProductResponse product = products.get(i);
+            ObjectNode item = items.addObject();
+            item.put("index", i);
+            item.put("name", product.getName());
+            item.put("description", product.getDescription());
+            item.put("category", product.getCategory());
+        }
 
+        String prompt = String.format("""
+                You are helping rural artisans sell their handmade products online.
+                For EACH product in the input array, return one JSON object with these fields,
+                and return ONLY a valid JSON array of those objects:
+
+                {
+                  "index": the product's index from the input,
+                  "detectedLanguage": "language name",
+                  "englishTitle": "SEO-friendly title (max 60 chars)",
+                  "englishDescription": "detailed description (50-100 words)",
+                  "tags": ["tag1", "tag2", "tag3", "tag4", "tag5"],
+                  "category": "main category",
+                  "subCategory": "subcategory",
+                  "occasion": "best suited occasion"
+                }
+
+                Guidelines:
+                - Highlight uniqueness, cultural value, craftsmanship
+                - Translate if the name or description is in a regional language
+
+                Products: %s
+                """, objectMapper.writeValueAsString(items));
+
+        int maxOutputTokens = products.size() * BATCH_OUTPUT_TOKENS_PER_PRODUCT;
         Map<String, Object> requestBody = Map.of(
                 "contents", List.of(
                         Map.of("parts", List.of(
-                                Map.of("text", prompt),
-                                Map.of("inline_data", Map.of(
-                                        "mime_type", "image/jpeg",
-                                        "data", imageBase64
-                                ))
+                                Map.of("text", prompt)
                         ))
                 ),
                 "generationConfig", Map.of(
                         "temperature", 0.4,
                         "topK", 32,
                         "topP", 1,
-                        "maxOutputTokens", 1000
+                        "maxOutputTokens", maxOutputTokens,
+                        "responseMimeType", "application/json"
                 )
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
-
-        ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-
-        if (response.getStatusCode() != HttpStatus.OK) {
-            throw new RuntimeException("Gemini API call failed: " + response.getStatusCode());
+        String response = callGeminiTextAPI(requestBody, textTokens(prompt, maxOutputTokens));
+        JsonNode array = objectMapper.readTree(response.replaceAll("```json", "").replaceAll("```", "").trim());
+
+        AIGeneratedProductDetails[] results = new AIGeneratedProductDetails[products.size()];
+        for (JsonNode node : array) {
+            int index = node.path("index").asInt(-1);
+            if (index < 0 || index >= results.length || !node.isObject()) continue;
+            try {
+                ((ObjectNode) node).remove("index");
+                results[index] = objectMapper.treeToValue(node, AIGeneratedProductDetails.class);
+            } catch (Exception e) {
+                System.err.println("Skipping unreadable batch entry " + index + ": " + e.getMessage());
+            }
         }
+        return new ArrayList<>(Arrays.asList(results));
+    }
 
-        return extractTextFromResponse(response.getBody());
+    // Written field by field onto the request stream. The image is base64-encoded as it is read from
+    // the file, so the request never holds more than a buffer of it; a retry re-opens the file.
+    private String callGeminiAPI(String prompt, Path image) throws Exception {
+        return geminiClient.generateContent(generator -> {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("contents");
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("parts");
+
+            generator.writeStartObject();
+            generator.writeStringField("text", prompt);
+            generator.writeEndObject();
+
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("inline_data");
+            generator.writeStringField("mime_type", "image/jpeg");
+            generator.writeFieldName("data");
+            try (InputStream in = Files.newInputStream(image)) {
+                generator.writeBinary(in, -1);
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+
+            generator.writeObjectFieldStart("generationConfig");
+            generator.writeNumberField("temperature", 0.4);
+            generator.writeNumberField("topK", 32);
+            generator.writeNumberField("topP", 1);
+            generator.writeNumberField("maxOutputTokens", ENRICH_OUTPUT_TOKENS);
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }, textTokens(prompt, ENRICH_OUTPUT_TOKENS) + IMAGE_TOKENS);
     }
 
-    private String extractTextFromResponse(String responseBody) throws Exception {
-        JsonNode root = objectMapper.readTree(responseBody);
-        return root.path("candidates").get(0)
-                .path("content").path("parts").get(0)
-                .path("text").asText();
+    private static long textTokens(String prompt, int maxOutputTokens) {
+        return prompt.length() / CHARS_PER_TOKEN + maxOutputTokens;
     }
 
     private AIGeneratedProductDetails parseProductDetails(String jsonResponse) throws Exception {
@@ -114,12 +230,17 @@ public class GeminiProductEnrichmentService {
         try {
             return objectMapper.readValue(cleanJson, AIGeneratedProductDetails.class);
         } catch (Exception e) {
+            // Rethrown so enrichProduct falls back without caching the fallback
             System.err.println("Failed to parse Gemini JSON: " + cleanJson);
-            e.printStackTrace();
-            return createFallbackProductDetails(cleanJson);
+            throw e;
         }
     }
 
+    // Generic details used when Gemini is unavailable or too slow
+    public AIGeneratedProductDetails fallbackProductDetails() {
+        return createFallbackProductDetails(null);
+    }
+
     private AIGeneratedProductDetails createFallbackProductDetails(String input) {
         return AIGeneratedProductDetails.builder()
                 .detectedLanguage("Unknown")
@@ -138,6 +259,9 @@ public class GeminiProductEnrichmentService {
 
     // Optional: for just language detection if needed separately
     public String detectLanguage(String text) {
+        String local = LanguageDetector.detect(text);
+        if (local != null) return local;
+
         try {
             String prompt = "Detect the language of this text and respond with ONLY the language name: \"" + text + "\"";
 
@@ -149,26 +273,25 @@ public class GeminiProductEnrichmentService {
                     )
             );
 
-            return callGeminiTextAPI(requestBody).trim();
+            return callGeminiTextAPI(requestBody, textTokens(prompt, 20)).trim();
         } catch (Exception e) {
             System.err.println("Language detection failed: " + e.getMessage());
             return "English"; // fallback
         }
     }
 
-    private String callGeminiTextAPI(Map<String, Object> requestBody) throws Exception {
-        String url = apiUrl + "?key=" + apiKey;
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
-
-        ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-        return extractTextFromResponse(response.getBody());
+    private String callGeminiTextAPI(Map<String, Object> requestBody, long estimatedTokens) throws Exception {
+        return geminiClient.generateContent(requestBody, estimatedTokens);
     }
 
     public String translateText(String originalText) {
+        // Nothing to translate; only captions the local detector can't place as English reach the model
+        if (originalText == null || originalText.isBlank() || LanguageDetector.isEnglish(originalText)) return originalText;
+
+        Optional<String> remembered = translationMemory.lookup(originalText);
+        if (remembered.isPresent()) return remembered.get();
+        if (!geminiClient.isAvailable()) return originalText;
+
         try {
             String prompt = String.format("""
             Translate the following text to English. Respond with ONLY the translated text, no JSON or extra words.
@@ -190,7 +313,9 @@ public class GeminiProductEnrichmentService {
                     )
             );
 
-            return callGeminiTextAPI(requestBody).trim();
+            String translated = callGeminiTextAPI(requestBody, textTokens(prompt, 200)).trim();
+            translationMemory.remember(originalText, translated);
+            return translated;
 
         } catch (Exception e) {
             System.err.println("Translation failed: " + e.getMessage());
@@ -0,0 +1,217 @@
+package com.example.craftopia.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Content-addressed cache of successful Gemini results. The key is a SHA-256 over the call's inputs
+// (kind, prompt version, image, caption), so an identical re-upload never reaches the API twice.
+// Two tiers: a bounded in-memory cache, and an optional directory (ai.cache.dir) that survives restarts.
+@Component
+public class GeminiResultCache {
+
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final long MAP_WINDOW_BYTES = 64L << 20;
+
+    @Value("${ai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.cache.max-entries:5000}")
+    private long maxEntries;
+
+    @Value("${ai.cache.ttl-hours:168}")
+    private long ttlHours;
+
+    // Empty = memory only
+    @Value("${ai.cache.dir:}")
+    private String diskDir;
+
+    private Cache<String, String> memory;
+    private Path diskRoot;
+
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskMisses = new AtomicLong();
+    private final AtomicLong diskWrites = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        memory = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+
+        if (enabled && !diskDir.isBlank()) {
+            diskRoot = Files.createDirectories(Paths.get(diskDir));
+        }
+    }
+
+    // Each part is length-prefixed, so ("ab", "c") and ("a", "bc") never share a key
+    public static String key(String... parts) {
+        MessageDigest digest = newDigest();
+        updateParts(digest, parts);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Key over a file's bytes plus the parts. The file is memory-mapped and hashed in place,
+    // so even a large image is never copied onto the heap.
+    public static String key(Path file, String... parts) {
+        MessageDigest digest = newDigest();
+        updateParts(digest, parts);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            digest.update(intBytes((int) (size >>> 32)));
+            digest.update(intBytes((int) size));
+            for (long position = 0; position < size; position += MAP_WINDOW_BYTES) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to hash " + file, e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Optional<String> get(String key) {
+        if (!enabled) return Optional.empty();
+
+        String value = memory.getIfPresent(key);
+        if (value != null || diskRoot == null) return Optional.ofNullable(value);
+
+        value = readDisk(key);
+        if (value == null) {
+            diskMisses.incrementAndGet();
+            return Optional.empty();
+        }
+        diskHits.incrementAndGet();
+        memory.put(key, value);
+        return Optional.of(value);
+    }
+
+    // Callers only store real API results; fallbacks must never be cached
+    public void put(String key, String value) {
+        if (!enabled || value == null) return;
+
+        memory.put(key, value);
+        if (diskRoot != null) writeDisk(key, value);
+    }
+
+    public long purge() {
+        long removed = memory.estimatedSize();
+        memory.invalidateAll();
+
+        if (diskRoot != null) {
+            try (Stream<Path> files = Files.walk(diskRoot)) {
+                removed += files.filter(f -> f.toString().endsWith(ENTRY_SUFFIX))
+                        .filter(GeminiResultCache::deleteQuietly)
+                        .count();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to purge AI cache directory", e);
+            }
+        }
+        return removed;
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = memory.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", memory.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("diskEnabled", diskRoot != null);
+        if (diskRoot != null) {
+            result.put("diskHits", diskHits.get());
+            result.put("diskMisses", diskMisses.get());
+            result.put("diskWrites", diskWrites.get());
+        }
+        return result;
+    }
+
+    // Two-character fan-out keeps any one directory small
+    private Path diskPath(String key) {
+        return diskRoot.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    private String readDisk(String key) {
+        Path file = diskPath(key);
+        try {
+            if (!Files.exists(file)) return null;
+            long ageMillis = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+            if (ageMillis > Duration.ofHours(ttlHours).toMillis()) {
+                deleteQuietly(file);
+                return null;
+            }
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("AI cache read failed for " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Write-then-rename, so a concurrent reader never sees half an entry
+    private void writeDisk(String key, String value) {
+        Path file = diskPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(temp, value, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskWrites.incrementAndGet();
+        } catch (IOException e) {
+            // The memory tier still has it; a failed disk write only costs a future API call
+            System.err.println("AI cache write failed for " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void updateParts(MessageDigest digest, String... parts) {
+        for (String part : parts) {
+            if (part == null) {
+                digest.update(intBytes(-1));
+                continue;
+            }
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            digest.update(intBytes(bytes.length));
+            digest.update(bytes);
+        }
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.Repository.ProductImageHash;
+import com.example.craftopia.Repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// BK-tree over the perceptual hashes of all live products, keyed by Hamming distance.
+// A lookup only visits subtrees whose edge distance is within the threshold of the query's,
+// so finding near-duplicates stays in the millisecond range for large catalogs.
+// ProductService keeps it in sync; it is rebuilt from the database on startup.
+@Service
+public class ImageDuplicateIndex {
+
+    @Autowired
+    private ProductRepository repo;
+
+    // Up to this many of the 64 hash bits may differ for two images to count as the same item
+    @Value("${image.duplicate-max-distance:6}")
+    private int maxDistance;
+
+    private Node root;
+
+    // productId -> hash, so a delete can find the node
+    private final Map<Long, Long> hashes = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<ProductImageHash> rows = repo.findImageHashes();
+        for (ProductImageHash row : rows) {
+            add(row.getId(), row.getImageHash());
+        }
+        System.out.println("Image duplicate index built: " + rows.size() + " products in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public void add(Long productId, Long hash) {
+        if (productId == null || hash == null) return;
+
+        lock.writeLock().lock();
+        try {
+            unlink(productId);
+            hashes.put(productId, hash);
+            if (root == null) {
+                root = new Node(hash);
+                root.productIds.add(productId);
+                return;
+            }
+
+            Node node = root;
+            while (true) {
+                int distance = Long.bitCount(node.hash ^ hash);
+                if (distance == 0) {
+                    node.productIds.add(productId);
+                    return;
+                }
+                Node child = node.children.get(distance);
+                if (child == null) {
+                    child = new Node(hash);
+                    child.productIds.add(productId);
+                    node.children.put(distance, child);
+                    return;
+                }
+                node = child;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unlink(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The closest live product within the threshold, if any
+    public Optional<Long> findDuplicate(Long hash) {
+        if (hash == null) return Optional.empty();
+
+        lock.readLock().lock();
+        try {
+            if (root == null) return Optional.empty();
+
+            Long bestId = null;
+            int bestDistance = Integer.MAX_VALUE;
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                int distance = Long.bitCount(node.hash ^ hash);
+                if (distance <= maxDistance && distance < bestDistance && !node.productIds.isEmpty()) {
+                    bestDistance = distance;
+                    bestId = Collections.min(node.productIds); // the original listing, not a later copy
+                }
+                // Triangle inequality: only children at edge distance d-max..d+max can hold a match
+                for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - distance) <= maxDistance) pending.push(child.getValue());
+                }
+            }
+            return Optional.ofNullable(bestId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Nodes stay in the tree as routing points; only the product id is dropped
+    private void unlink(Long productId) {
+        Long hash = hashes.remove(productId);
+        if (hash == null) return;
+
+        Node node = root;
+        while (node != null) {
+            int distance = Long.bitCount(node.hash ^ hash);
+            if (distance == 0) {
+                node.productIds.remove(productId);
+                return;
+            }
+            node = node.children.get(distance);
+        }
+    }
+
+    private static class Node {
+        final long hash;
+        final Set<Long> productIds = new HashSet<>();
+        final Map<Integer, Node> children = new HashMap<>();
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.Util.FileStaging;
+import com.example.craftopia.Util.ProcessedImage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.*;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Downscales uploads before they reach Gemini and produces catalog thumbnails.
+// Decoding uses ImageIO source subsampling, so a 12 MP phone photo is never fully decoded in memory,
+// and runs on a small bounded pool so concurrent uploads cannot exhaust the heap.
+// Anything that can't be decoded (or a saturated pool) falls back to the untouched original.
+@Service
+public class ImageProcessingService {
+
+    // Enough pixels for the 9x8 hash to average over, while decoding as little as possible
+    private static final int HASH_DECODE_SIDE = 256;
+
+    @Autowired
+    private FileStaging fileStaging;
+
+    @Value("${image.analysis-max-side:1024}")
+    private int analysisMaxSide;
+
+    @Value("${image.thumbnail-sizes:160,480}")
+    private int[] thumbnailSizes;
+
+    @Value("${image.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${image.workers:2}")
+    private int workers;
+
+    @Value("${image.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${image.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "image-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Analysis image for the model plus thumbnails
+    public ProcessedImage process(Path original) {
+        return process(original, true);
+    }
+
+    // Thumbnails only, for uploads that never go to the model
+    public ProcessedImage thumbnails(Path original) {
+        return process(original, false);
+    }
+
+    // Perceptual hash of the image alone, or null if it can't be decoded
+    public Long imageHash(Path original) {
+        return onPool(() -> {
+            BufferedImage decoded = decode(original, HASH_DECODE_SIDE);
+            return decoded != null ? differenceHash(decoded) : null;
+        }, null);
+    }
+
+    private ProcessedImage process(Path original, boolean withAnalysisImage) {
+        return onPool(() -> resize(original, withAnalysisImage), ProcessedImage.passThrough(original));
+    }
+
+    private <T> T onPool(Callable<T> task, T fallback) {
+        Future<T> result;
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Image pool is full, using the original image");
+            return fallback;
+        }
+
+        try {
+            return result.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException | TimeoutException e) {
+            result.cancel(true);
+            System.err.println("Image processing failed, using the original image: " + e);
+            return fallback;
+        }
+    }
+
+    public void discard(ProcessedImage image) {
+        if (image == null) return;
+        image.generatedFiles().forEach(fileStaging::discard);
+    }
+
+    private ProcessedImage resize(Path original, boolean withAnalysisImage) throws IOException {
+        int largestThumbnail = Arrays.stream(thumbnailSizes).max().orElse(1);
+        int largestOutput = withAnalysisImage ? Math.max(analysisMaxSide, largestThumbnail) : largestThumbnail;
+
+        BufferedImage decoded = decode(original, largestOutput);
+        if (decoded == null) return ProcessedImage.passThrough(original);
+
+        Map<String, Path> thumbnails = new LinkedHashMap<>();
+        try {
+            for (int size : thumbnailSizes) {
+                thumbnails.put("thumb-" + size, writeJpeg(scaleToFit(decoded, size), "thumb-" + size + "-"));
+            }
+            Path analysis = withAnalysisImage ? writeJpeg(scaleToFit(decoded, analysisMaxSide), "analysis-") : original;
+            return new ProcessedImage(original, analysis, thumbnails, differenceHash(decoded));
+        } catch (IOException | RuntimeException e) {
+            thumbnails.values().forEach(fileStaging::discard);
+            throw e;
+        }
+    }
+
+    // Decodes with the largest whole-number subsampling step that still yields at least minSide px
+    // (a 4000 px photo for a 1024 px target is read at every 3rd pixel, about 1334 px).
+    // Null if no ImageIO reader understands the format.
+    private static BufferedImage decode(Path file, int minSide) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / Math.max(minSide, 1));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 64-bit dHash: the image averaged down to 9x8 grey, one bit per horizontal neighbour pair
+    // (1 = left brighter). Robust to rescaling and recompression, so re-uploads land a few bits apart.
+    static long differenceHash(BufferedImage image) {
+        BufferedImage grey = new BufferedImage(9, 8, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = grey.createGraphics();
+        try {
+            graphics.drawImage(image.getScaledInstance(9, 8, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Raster pixels = grey.getRaster();
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash = (hash << 1) | (pixels.getSample(x, y, 0) > pixels.getSample(x + 1, y, 0) ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    // Never upscales. Drawn onto an opaque white canvas, since JPEG has no alpha channel.
+    private static BufferedImage scaleToFit(BufferedImage source, int maxSide) {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private Path writeJpeg(BufferedImage image, String prefix) throws IOException {
+        Path target = fileStaging.newFile(prefix, ".jpg");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return target;
+    }
+}
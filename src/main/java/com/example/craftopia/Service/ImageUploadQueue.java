@@ -0,0 +1,243 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.Entity.ImageUpload;
+import com.example.craftopia.Entity.ImageUploadStatus;
+import com.example.craftopia.Repository.ImageUploadRepository;
+import com.example.craftopia.Util.FileStaging;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Uploads staged product images to Cloudinary in the background, so creating a product
+// never waits on the CDN. Each file is a persisted task: a poller hands due tasks to a
+// small pool, failures are retried with exponential backoff, and the product's imageUrl
+// (or the matching imageVariants entry) is patched in once the upload lands.
+// Staged files sit on the local disk of the node that took the upload, so each task records that node
+// (upload.node-id) and only that node claims, resumes or deletes its files; any node can cancel.
+@Service
+public class ImageUploadQueue {
+
+    @Autowired private ImageUploadRepository uploadRepo;
+    @Autowired private CloudinaryService cloudinaryService;
+    @Autowired private ProductService productService;
+    @Autowired private FileStaging fileStaging;
+
+    @Value("${upload.workers:4}")
+    private int workers;
+
+    @Value("${upload.max-attempts:8}")
+    private int maxAttempts;
+
+    // Delay before the first retry; doubles per attempt up to backoff-max-ms
+    @Value("${upload.backoff-base-ms:2000}")
+    private long backoffBaseMs;
+
+    @Value("${upload.backoff-max-ms:600000}")
+    private long backoffMaxMs;
+
+    // Must stay the same across restarts for a node to resume its own tasks; defaults to the host name
+    @Value("${upload.node-id:}")
+    private String nodeId;
+
+    private ThreadPoolExecutor executor;
+
+    // Claimed tasks not yet finished; the poller never claims more than the pool can run
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        if (nodeId == null || nodeId.isBlank()) nodeId = hostName();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(workers),
+                r -> new Thread(r, "image-upload-" + threadCount.incrementAndGet()));
+
+        // Uploads cut off by this node's last shutdown go back in line; other nodes' are still running.
+        // Done here rather than on ApplicationReadyEvent so it can't race the first scheduled poll.
+        int resumed = uploadRepo.transitionAll(nodeId, ImageUploadStatus.UPLOADING, ImageUploadStatus.PENDING);
+        if (resumed > 0) {
+            System.out.println("Resumed " + resumed + " interrupted image upload(s)");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow(); // claimed tasks stay UPLOADING and are resumed on next start
+    }
+
+    // Queues a new product's first image (generation 0). Takes ownership of the staged files: each is
+    // discarded once its upload is settled. Joins the caller's transaction if there is one (e.g. the
+    // product's insert); the tasks are only handed to workers after it commits, and a rollback takes them with it.
+    public void enqueue(Long productId, Path original, Map<String, Path> variants) {
+        List<ImageUpload> tasks = new ArrayList<>();
+        tasks.add(newTask(productId, null, original));
+        variants.forEach((name, file) -> tasks.add(newTask(productId, name, file)));
+        List<ImageUpload> saved = uploadRepo.saveAll(tasks);
+        afterCommit(() -> dispatch(saved));
+    }
+
+    // Drops anything still queued for the product, e.g. once it is deleted or given a new image URL.
+    // An upload already in flight finishes but is not applied. Joins the caller's transaction if there is
+    // one (e.g. the PATCH holding the product's row lock). The staged files are deleted by their owner's
+    // next poll, since the task may belong to another node.
+    public void cancel(Long productId) {
+        List<ImageUpload> open = uploadRepo.findByProductIdAndStatusIn(
+                productId, List.of(ImageUploadStatus.PENDING, ImageUploadStatus.UPLOADING));
+        for (ImageUpload task : open) {
+            if (uploadRepo.transition(task.getId(), ImageUploadStatus.PENDING, ImageUploadStatus.CANCELLED) != 1) {
+                uploadRepo.transition(task.getId(), ImageUploadStatus.UPLOADING, ImageUploadStatus.CANCELLED);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${upload.poll-ms:5000}")
+    public void poll() {
+        discardCancelled();
+
+        int free = workers * 2 - inFlight.get();
+        if (free <= 0) return;
+
+        dispatch(uploadRepo.findByOwnerAndStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                nodeId, ImageUploadStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, free)));
+    }
+
+    // Deletes the staged files of this node's cancelled tasks, whichever node cancelled them
+    private void discardCancelled() {
+        for (ImageUpload task : uploadRepo.findByOwnerAndStatusAndFileDiscardedFalse(
+                nodeId, ImageUploadStatus.CANCELLED, PageRequest.of(0, 100))) {
+            fileStaging.discard(Path.of(task.getFilePath()));
+            uploadRepo.markFileDiscarded(task.getId());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ImageUploadStatus status : ImageUploadStatus.values()) {
+            stats.put(status.name().toLowerCase(), uploadRepo.countByStatus(status));
+        }
+        stats.put("node", nodeId);
+        stats.put("inFlight", inFlight.get());
+        stats.put("workers", workers);
+        return stats;
+    }
+
+    // Tasks left PENDING here (pool full, or claimed elsewhere) are picked up by a later poll
+    private void dispatch(List<ImageUpload> tasks) {
+        for (ImageUpload task : tasks) {
+            if (task.getNextAttemptAt().isAfter(LocalDateTime.now())) continue;
+            if (inFlight.get() >= workers * 2) return;
+            if (uploadRepo.transition(task.getId(), ImageUploadStatus.PENDING, ImageUploadStatus.UPLOADING) != 1) continue;
+
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> upload(task));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                uploadRepo.transition(task.getId(), ImageUploadStatus.UPLOADING, ImageUploadStatus.PENDING);
+                return;
+            }
+        }
+    }
+
+    private void upload(ImageUpload task) {
+        Path file = Path.of(task.getFilePath());
+        try {
+            String url = cloudinaryService.uploadImage(file.toFile());
+
+            // Settle first: if the task was cancelled meanwhile, the product must not be touched. A cancel that
+            // has not committed yet holds the row, so this waits for it. The generation check in
+            // applyUploadedImage covers the rest: an image replaced after this settled is not overwritten.
+            if (uploadRepo.settle(task.getId(), ImageUploadStatus.UPLOADING, ImageUploadStatus.COMPLETED,
+                    task.getAttempts() + 1, null, url, null) == 1) {
+                if (productService.applyUploadedImage(task.getProductId(), task.getImageGeneration(),
+                        task.getVariant(), url).isEmpty()) {
+                    System.out.println("Product " + task.getProductId() + " is gone or has a newer image, upload "
+                            + task.getId() + " not applied");
+                }
+            }
+            fileStaging.discard(file);
+        } catch (Exception e) {
+            retryOrFail(task, file, e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void retryOrFail(ImageUpload task, Path file, Exception e) {
+        int attempts = task.getAttempts() + 1;
+        String error = e.getMessage() != null ? e.getMessage() : e.toString();
+        if (error.length() > 1000) error = error.substring(0, 1000);
+
+        if (attempts >= maxAttempts) {
+            System.err.println("Image upload " + task.getId() + " for product " + task.getProductId()
+                    + " failed after " + attempts + " attempts: " + error);
+            uploadRepo.settle(task.getId(), ImageUploadStatus.UPLOADING, ImageUploadStatus.FAILED,
+                    attempts, null, null, error);
+            fileStaging.discard(file);
+            return;
+        }
+
+        long delayMs = backoffMillis(attempts);
+        System.err.println("Image upload " + task.getId() + " failed (attempt " + attempts + "), retrying in "
+                + delayMs + " ms: " + error);
+        if (uploadRepo.settle(task.getId(), ImageUploadStatus.UPLOADING, ImageUploadStatus.PENDING,
+                attempts, LocalDateTime.now().plusNanos(delayMs * 1_000_000L), null, error) == 0) {
+            fileStaging.discard(file); // cancelled while we were uploading
+        }
+    }
+
+    // base * 2^(attempt-1), capped, minus up to 20% jitter so a CDN outage doesn't end in a retry stampede
+    private long backoffMillis(int attempt) {
+        long exponential = backoffBaseMs << Math.min(attempt - 1, 20);
+        long capped = Math.min(backoffMaxMs, exponential);
+        return capped - ThreadLocalRandom.current().nextLong(capped / 5 + 1);
+    }
+
+    // Runs after the caller's transaction commits, or now if there is none
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Cannot resolve the host name; set upload.node-id", e);
+        }
+    }
+
+    private ImageUpload newTask(Long productId, String variant, Path file) {
+        return ImageUpload.builder()
+                .productId(productId)
+                .variant(variant)
+                .filePath(file.toString())
+                .owner(nodeId)
+                .status(ImageUploadStatus.PENDING)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
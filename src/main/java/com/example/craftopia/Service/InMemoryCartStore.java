@@ -0,0 +1,544 @@
+package com.example.craftopia.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Carts served from memory (cart.store=memory), for a write path that is too hot for a read-modify-write
+// of the Cart aggregate per click. Carts are sharded by user id, each shard behind its own lock.
+// Every change is appended to the shard's log before the call returns; a periodic flush then writes each
+// changed cart to the database once, however many times it changed in between, and drops the log segments
+// it covered. On start-up whatever the logs still hold is replayed into the database before the store serves
+// anything, so a crash loses nothing that was acknowledged. A cart the database keeps refusing is set aside
+// (cart.memory.max-flush-attempts) in cart-parked.log instead of holding up its shard, and retried on the next start.
+// Single-instance only: another node writing the same carts would be overwritten by the next flush.
+@Component
+@Primary
+@ConditionalOnProperty(name = "cart.store", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("cart-(\\d+)\\.(\\d+)\\.log");
+
+    @Autowired
+    private JpaCartStore database;
+
+    @Value("${cart.memory.shards:64}")
+    private int shardCount;
+
+    @Value("${cart.memory.log-dir:${java.io.tmpdir}/craftopia-cart-log}")
+    private Path logDir;
+
+    // Carts with nothing left to flush are dropped after this long without access and reloaded on demand
+    @Value("${cart.memory.idle-evict-minutes:30}")
+    private long idleEvictMinutes;
+
+    // Flushes in a row a cart may fail before it is set aside
+    @Value("${cart.memory.max-flush-attempts:10}")
+    private int maxFlushAttempts;
+
+    private Shard[] shards;
+
+    // Carts set aside after failing every flush attempt, with the lines they had; mirrored to parkedFile
+    private final Map<Long, Map<Long, Integer>> parked = new LinkedHashMap<>();
+    private Path parkedFile;
+
+    // Segment numbers are global and only grow, so replaying segments in number order replays changes in order
+    private final AtomicLong segmentSequence = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(logDir);
+        parkedFile = logDir.resolve("cart-parked.log");
+        List<Path> leftover = listSegments();
+        for (Path segment : leftover) {
+            segmentSequence.set(Math.max(segmentSequence.get(), segmentNumber(segment) + 1));
+        }
+
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            shards[i].openSegment();
+        }
+        recover(leftover);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+        for (Shard shard : shards) shard.closeSegment();
+    }
+
+    @Override
+    public Optional<Map<Long, Integer>> find(Long userId) {
+        Shard shard = shardFor(userId);
+        CartState loaded = shard.load(userId);
+        shard.lock.lock();
+        try {
+            CartState state = shard.carts.computeIfAbsent(userId, id -> loaded);
+            state.lastAccess = System.currentTimeMillis();
+            return state.exists ? Optional.of(new LinkedHashMap<>(state.lines)) : Optional.empty();
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Memory and the log can't take part in a database transaction, so inside one (e.g. placing an order) the
+    // change is checked and its result returned now, but only applied after commit; a rollback leaves the cart as it was.
+    // The cart is pinned in memory until the transaction ends, so applying it after commit reads nothing from the
+    // database and has nothing left that can fail: if even the log append fails, the cart is still marked dirty
+    // and the next flush writes it.
+    @Override
+    public Map<Long, Integer> update(Long userId, Consumer<Map<Long, Integer>> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return apply(userId, change);
+        }
+
+        Shard shard = shardFor(userId);
+        CartState loaded = shard.load(userId);
+        CartState state;
+        Map<Long, Integer> lines;
+        shard.lock.lock();
+        try {
+            state = shard.carts.computeIfAbsent(userId, id -> loaded);
+            state.pins++;
+            lines = new LinkedHashMap<>(state.lines);
+        } finally {
+            shard.lock.unlock();
+        }
+
+        try {
+            change.accept(lines);
+        } catch (RuntimeException e) {
+            shard.unpin(state);
+            throw e;
+        }
+        lines.values().removeIf(quantity -> quantity == null || quantity <= 0);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyCommitted(shard, state, userId, change);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                shard.unpin(state);
+            }
+        });
+        return lines;
+    }
+
+    // Re-runs the change on the cart as it is by then, so concurrent edits are kept. Never throws: the caller's
+    // transaction has already committed and there is no one left to report to.
+    private void applyCommitted(Shard shard, CartState state, Long userId, Consumer<Map<Long, Integer>> change) {
+        shard.lock.lock();
+        try {
+            Map<Long, Integer> lines = new LinkedHashMap<>(state.lines);
+            try {
+                change.accept(lines);
+            } catch (RuntimeException e) {
+                // Only a change that depends on lines a concurrent edit has since removed; that edit stands
+                System.err.println("Cart change for user " + userId + " no longer applies after commit: " + e.getMessage());
+                return;
+            }
+            lines.values().removeIf(quantity -> quantity == null || quantity <= 0);
+
+            state.lines = lines;
+            state.exists = true;
+            state.lastAccess = System.currentTimeMillis();
+            shard.dirty.add(userId);
+            try {
+                shard.append(userId, lines);
+            } catch (UncheckedIOException e) {
+                System.err.println("Cart change for user " + userId + " not logged, left to the next flush: " + e.getMessage());
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private Map<Long, Integer> apply(Long userId, Consumer<Map<Long, Integer>> change) {
+        Shard shard = shardFor(userId);
+        CartState loaded = shard.load(userId);
+        shard.lock.lock();
+        try {
+            CartState state = shard.carts.computeIfAbsent(userId, id -> loaded);
+            Map<Long, Integer> lines = new LinkedHashMap<>(state.lines);
+            change.accept(lines);
+            lines.values().removeIf(quantity -> quantity == null || quantity <= 0);
+
+            shard.append(userId, lines); // logged before it is visible, so an acknowledged change survives a crash
+            state.lines = lines;
+            state.exists = true;
+            state.lastAccess = System.currentTimeMillis();
+            shard.dirty.add(userId);
+            return new LinkedHashMap<>(lines);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Writes every cart changed since the last flush, once each and each in its own transaction, so one cart the
+    // database refuses doesn't hold back the rest. A failed cart is logged again into the open segment and retried
+    // on the next flush, which lets the segments just flushed be deleted whatever happened to it; after
+    // maxFlushAttempts failures in a row it is parked. Shards flush independently, outside any shared lock.
+    @Scheduled(fixedDelayString = "${cart.memory.flush-ms:1000}")
+    public void flush() {
+        long idleCutoff = System.currentTimeMillis() - idleEvictMinutes * 60_000;
+        for (Shard shard : shards) {
+            shard.flushLock.lock(); // only against a shutdown flush racing the scheduled one
+            try {
+                flush(shard, idleCutoff);
+            } finally {
+                shard.flushLock.unlock();
+            }
+        }
+    }
+
+    private void flush(Shard shard, long idleCutoff) {
+        Map<Long, Map<Long, Integer>> batch = new LinkedHashMap<>();
+        long sealed;
+        shard.lock.lock();
+        try {
+            shard.carts.entrySet().removeIf(e -> !shard.dirty.contains(e.getKey()) && e.getValue().evictable(idleCutoff));
+            if (shard.dirty.isEmpty()) return;
+
+            shard.dirty.forEach(userId -> batch.put(userId, new LinkedHashMap<>(shard.carts.get(userId).lines)));
+            shard.dirty.clear();
+            sealed = shard.rotate();
+        } finally {
+            shard.lock.unlock();
+        }
+
+        boolean covered = true;
+        for (Map.Entry<Long, Map<Long, Integer>> cart : batch.entrySet()) {
+            Long userId = cart.getKey();
+            try {
+                database.replace(userId, cart.getValue());
+                shard.flushed(userId);
+            } catch (RuntimeException e) {
+                covered &= shard.flushFailed(userId, e);
+            }
+        }
+        if (covered) shard.deleteSegmentsUpTo(sealed);
+    }
+
+    // Replays the log segments left by the last run, oldest first (the last state logged for a cart wins), on top
+    // of any carts the last run had parked, and writes each cart to the database. A cart that still can't be
+    // written is kept in memory as dirty and logged again, so the old segments can go either way.
+    private void recover(List<Path> segments) throws IOException {
+        Map<Long, Map<Long, Integer>> recovered = new LinkedHashMap<>();
+        boolean hadParked = Files.exists(parkedFile);
+        if (hadParked) readLog(parkedFile, recovered);
+        for (Path segment : segments) readLog(segment, recovered);
+        if (recovered.isEmpty() && !hadParked && segments.isEmpty()) return;
+
+        int held = 0;
+        for (Map.Entry<Long, Map<Long, Integer>> cart : recovered.entrySet()) {
+            try {
+                database.replace(cart.getKey(), cart.getValue());
+            } catch (RuntimeException e) {
+                System.err.println("Recovered cart for user " + cart.getKey() + " not written yet, will retry: " + e.getMessage());
+                shardFor(cart.getKey()).hold(cart.getKey(), cart.getValue()); // throws, failing start-up, if it can't be logged
+                held++;
+            }
+        }
+
+        for (Path segment : segments) Files.deleteIfExists(segment);
+        Files.deleteIfExists(parkedFile);
+        System.out.println("Cart store recovered " + recovered.size() + " unflushed cart(s) from " + logDir
+                + (held > 0 ? ", " + held + " still to write" : ""));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(logDir)) {
+            return files.filter(f -> SEGMENT_NAME.matcher(f.getFileName().toString()).matches())
+                    .sorted(Comparator.comparingLong(InMemoryCartStore::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private static void readLog(Path file, Map<Long, Map<Long, Integer>> into) throws IOException {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            Map.Entry<Long, Map<Long, Integer>> entry = parseLine(line);
+            if (entry != null) into.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Rewrites cart-parked.log from the parked map; the old file is only replaced once the new one is complete
+    private void writeParked() throws IOException {
+        synchronized (parked) {
+            if (parked.isEmpty()) {
+                Files.deleteIfExists(parkedFile);
+                return;
+            }
+            Path next = parkedFile.resolveSibling(parkedFile.getFileName() + ".tmp");
+            StringBuilder content = new StringBuilder();
+            parked.forEach((userId, lines) -> content.append(formatLine(userId, lines)));
+            Files.writeString(next, content, StandardCharsets.UTF_8);
+            Files.move(next, parkedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private Shard shardFor(Long userId) {
+        return shards[(int) Math.floorMod(userId, (long) shardCount)];
+    }
+
+    private static long segmentNumber(Path file) {
+        Matcher name = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return name.matches() ? Long.parseLong(name.group(2)) : 0;
+    }
+
+    // userId<TAB>productId:quantity,productId:quantity,;  The closing ';' marks a complete record.
+    private static String formatLine(Long userId, Map<Long, Integer> lines) {
+        StringBuilder line = new StringBuilder().append(userId).append('\t');
+        lines.forEach((productId, quantity) -> line.append(productId).append(':').append(quantity).append(','));
+        return line.append(";\n").toString();
+    }
+
+    // Null for a record cut short by a crash mid-write
+    private static Map.Entry<Long, Map<Long, Integer>> parseLine(String line) {
+        int tab = line.indexOf('\t');
+        if (tab < 0 || !line.endsWith(";")) return null;
+        line = line.substring(0, line.length() - 1);
+        try {
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            for (String pair : line.substring(tab + 1).split(",")) {
+                if (pair.isEmpty()) continue;
+                int colon = pair.indexOf(':');
+                lines.put(Long.parseLong(pair.substring(0, colon)), Integer.parseInt(pair.substring(colon + 1)));
+            }
+            return Map.entry(Long.parseLong(line.substring(0, tab)), lines);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static class CartState {
+        boolean exists;
+        Map<Long, Integer> lines;
+        long lastAccess = System.currentTimeMillis();
+        int pins;        // open transactions that will apply a change to this cart after commit
+        boolean parked;  // only in cart-parked.log and here, so it must not be evicted
+
+        CartState(boolean exists, Map<Long, Integer> lines) {
+            this.exists = exists;
+            this.lines = lines;
+        }
+
+        boolean evictable(long idleCutoff) {
+            return pins == 0 && !parked && lastAccess < idleCutoff;
+        }
+    }
+
+    private class Shard {
+        final int index;
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, CartState> carts = new HashMap<>();
+        final Set<Long> dirty = new HashSet<>();
+        final Map<Long, Integer> flushFailures = new HashMap<>();
+        final ReentrantLock flushLock = new ReentrantLock();
+
+        // Log segments not yet covered by a successful flush, oldest first; the last one is open for appends
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        BufferedWriter writer;
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        // Reads a cart the shard doesn't hold yet. The database read happens outside the lock;
+        // if another thread got there first its copy is kept.
+        CartState load(Long userId) {
+            lock.lock();
+            try {
+                CartState state = carts.get(userId);
+                if (state != null) return state;
+            } finally {
+                lock.unlock();
+            }
+
+            Optional<Map<Long, Integer>> stored = database.find(userId);
+            CartState loaded = new CartState(stored.isPresent(), stored.orElseGet(LinkedHashMap::new));
+            lock.lock();
+            try {
+                return carts.computeIfAbsent(userId, id -> loaded);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void unpin(CartState state) {
+            lock.lock();
+            try {
+                state.pins--;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Puts a cart that still has to reach the database into memory as dirty, and logs it
+        void hold(Long userId, Map<Long, Integer> lines) {
+            lock.lock();
+            try {
+                CartState state = new CartState(true, new LinkedHashMap<>(lines));
+                carts.put(userId, state);
+                append(userId, lines);
+                dirty.add(userId);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void flushed(Long userId) {
+            boolean wasParked;
+            lock.lock();
+            try {
+                flushFailures.remove(userId);
+                CartState state = carts.get(userId);
+                wasParked = state != null && state.parked;
+                if (wasParked) state.parked = false;
+            } finally {
+                lock.unlock();
+            }
+            if (wasParked) unpark(userId);
+        }
+
+        // Marks the cart for another try, or parks it once it has failed too often. Returns false if its latest
+        // state is not safely logged anywhere else yet, so the sealed segments must be kept.
+        boolean flushFailed(Long userId, RuntimeException cause) {
+            lock.lock();
+            try {
+                CartState state = carts.get(userId);
+                if (dirty.contains(userId)) {
+                    return true; // changed again since the snapshot: the newer state is already in the open segment
+                }
+                int failures = flushFailures.merge(userId, 1, Integer::sum);
+                if (failures >= maxFlushAttempts && park(userId, state.lines, cause)) {
+                    flushFailures.remove(userId);
+                    state.parked = true;
+                    return true;
+                }
+                System.err.println("Cart flush failed for user " + userId + " (" + failures + "/" + maxFlushAttempts
+                        + "), will retry: " + cause.getMessage());
+                dirty.add(userId);
+                try {
+                    append(userId, state.lines);
+                    return true;
+                } catch (UncheckedIOException e) {
+                    System.err.println("Failed to log cart for user " + userId + " again, keeping old segments: " + e.getMessage());
+                    return false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean park(Long userId, Map<Long, Integer> lines, RuntimeException cause) {
+            synchronized (parked) {
+                parked.put(userId, new LinkedHashMap<>(lines));
+                try {
+                    writeParked();
+                } catch (IOException e) {
+                    parked.remove(userId);
+                    System.err.println("Failed to park cart for user " + userId + ": " + e.getMessage());
+                    return false;
+                }
+            }
+            System.err.println("Cart for user " + userId + " failed " + maxFlushAttempts
+                    + " flushes in a row, parked in " + parkedFile + " until restart or its next change: " + cause.getMessage());
+            return true;
+        }
+
+        private void unpark(Long userId) {
+            synchronized (parked) {
+                if (parked.remove(userId) == null) return;
+                try {
+                    writeParked();
+                } catch (IOException e) {
+                    // A stale entry is only replayed before the segments, and the cart is in the database now
+                    System.err.println("Failed to drop parked cart for user " + userId + ": " + e.getMessage());
+                }
+            }
+        }
+
+        void append(Long userId, Map<Long, Integer> lines) {
+            try {
+                writer.write(formatLine(userId, lines));
+                writer.flush(); // to the OS: survives a process crash without paying for an fsync per click
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to log cart change", e);
+            }
+        }
+
+        void openSegment() {
+            long number = segmentSequence.getAndIncrement();
+            Path file = logDir.resolve("cart-" + index + "." + number + ".log");
+            try {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open cart log " + file, e);
+            }
+            segments.put(number, file);
+        }
+
+        void closeSegment() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close cart log for shard " + index + ": " + e.getMessage());
+            }
+        }
+
+        // Seals the open segment and starts a new one; returns the sealed segment's number. Called under the lock.
+        long rotate() {
+            long sealed = segments.lastKey();
+            closeSegment();
+            openSegment();
+            return sealed;
+        }
+
+        void deleteSegmentsUpTo(long sealed) {
+            List<Path> covered;
+            lock.lock();
+            try {
+                Map<Long, Path> head = segments.headMap(sealed, true);
+                covered = new ArrayList<>(head.values());
+                head.clear();
+            } finally {
+                lock.unlock();
+            }
+            for (Path segment : covered) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete cart log " + segment + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
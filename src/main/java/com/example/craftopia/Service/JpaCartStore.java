@@ -0,0 +1,210 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.Entity.Cart;
+import com.example.craftopia.Entity.CartItem;
+import com.example.craftopia.Repository.CartItemRepository;
+import com.example.craftopia.Repository.CartRepository;
+import com.example.craftopia.Repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Cart lines straight from the Cart/CartItem tables. Also the write target of InMemoryCartStore's flushes.
+// Adding to a line and taking one off it are single statements on the line's row: an upsert on the unique
+// (cart_id, product_id) key, and a relative decrement. Concurrent writers to one line queue on its row lock for
+// the length of a statement instead of failing, and writers to different lines don't meet at all.
+// Other changes are optimistic read-modify-writes, versioned per line rather than per cart: a write based on a
+// stale line (or beaten to inserting one) is rolled back and re-run on fresh state, so nothing is lost.
+// The cart's counters are adjusted relatively in the same transaction, so they never race either.
+@Component
+public class JpaCartStore implements CartStore {
+
+    @Autowired private CartRepository cartRepo;
+    @Autowired private CartItemRepository cartItemRepo;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Item updates and deletes of one cart write go out as JDBC batches of this size. New items cannot be
+    // batched: CartItem ids are IDENTITY, so Hibernate inserts them one by one to read the key back.
+    @Value("${cart.jdbc-batch-size:50}")
+    private int jdbcBatchSize;
+
+    @Value("${cart.write-attempts:10}")
+    private int writeAttempts;
+
+    @Override
+    public Optional<Map<Long, Integer>> find(Long userId) {
+        return cartRepo.findByUserIdAndIsDeletedFalse(userId).map(JpaCartStore::lines);
+    }
+
+    // One column of one row, no items loaded
+    @Override
+    public Optional<Integer> totalQuantity(Long userId) {
+        return cartRepo.findTotalQuantityByUserId(userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCounters() {
+        int updated = cartRepo.backfillCounters();
+        if (updated > 0) {
+            System.out.println("Backfilled item counters on " + updated + " cart(s)");
+        }
+    }
+
+    @Override
+    public Map<Long, Integer> update(Long userId, Consumer<Map<Long, Integer>> change) {
+        return retrying(() -> applyChange(userId, change));
+    }
+
+    @Override
+    public void add(Long userId, Long productId, int quantity) {
+        retrying(() -> {
+            Long cartId = cartIdFor(userId);
+            cartItemRepo.upsertAdd(cartId, productId, quantity);
+            // Our own row, locked until commit: version 0 means the upsert inserted it
+            boolean inserted = cartItemRepo.findVersion(cartId, productId).orElse(0L) == 0L;
+            cartRepo.addToCounters(cartId, inserted ? 1 : 0, quantity);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeOne(Long userId, Long productId) {
+        retrying(() -> {
+            Long cartId = cartRepo.findIdByUserId(userId).orElse(null);
+            if (cartId == null || cartItemRepo.decrement(cartId, productId) == 0) {
+                throw new RuntimeException("Product not found in cart");
+            }
+            int removed = cartItemRepo.deleteIfEmpty(cartId, productId);
+            cartRepo.addToCounters(cartId, -removed, -1);
+            return null;
+        });
+    }
+
+    // Runs work in its own transaction, re-running it when it loses a race
+    private <T> T retrying(Supplier<T> work) {
+        // Inside a caller's transaction (placing an order) a conflict has already doomed that transaction,
+        // so it is not retried here: it fails the caller, which rolls back as a whole
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= writeAttempts) {
+                    throw new RuntimeException("Cart is being updated elsewhere, please try again", e);
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Overwrites the user's lines with the given ones. A single attempt: InMemoryCartStore's flush, its only
+    // caller, retries a failed cart on its next run and must not sit in backoff while other carts wait
+    public void replace(Long userId, Map<Long, Integer> lines) {
+        transactionTemplate.executeWithoutResult(status -> applyChange(userId, current -> {
+            current.clear();
+            current.putAll(lines);
+        }));
+    }
+
+    private Map<Long, Integer> applyChange(Long userId, Consumer<Map<Long, Integer>> change) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId).orElseGet(() -> newCart(userId));
+        Map<Long, Integer> lines = lines(cart);
+        change.accept(lines);
+        Counters delta = write(cart, lines);
+        cartRepo.saveAndFlush(cart); // conflicts surface here, translated, rather than at commit
+        if (delta.items != 0 || delta.quantity != 0) {
+            cartRepo.addToCounters(cart.getId(), delta.items, delta.quantity);
+        }
+        return lines;
+    }
+
+    // Existing cart's id, or a new cart's; two first writes racing to create it meet on the unique user key
+    private Long cartIdFor(Long userId) {
+        return cartRepo.findIdByUserId(userId).orElseGet(() -> newCart(userId).getId());
+    }
+
+    private Cart newCart(Long userId) {
+        Cart cart = new Cart();
+        cart.setUser(userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found")));
+        cart.setItems(new ArrayList<>());
+        return cartRepo.save(cart);
+    }
+
+    // Random wait growing with the attempt, so writers that collided don't collide again in lockstep
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(Math.min(50, 1L << attempt) + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while updating cart", e);
+        }
+    }
+
+    private static Map<Long, Integer> lines(Cart cart) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        if (cart.getItems() != null) {
+            cart.getItems().forEach(item -> lines.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        }
+        return lines;
+    }
+
+    // Only the rows that actually changed are touched; orphanRemoval deletes the dropped ones.
+    // Returns how much the cart's counters change.
+    private static Counters write(Cart cart, Map<Long, Integer> lines) {
+        if (cart.getItems() == null) cart.setItems(new ArrayList<>());
+
+        Counters delta = new Counters();
+        Map<Long, Integer> remaining = new LinkedHashMap<>(lines);
+        Iterator<CartItem> items = cart.getItems().iterator();
+        while (items.hasNext()) {
+            CartItem item = items.next();
+            Integer quantity = remaining.remove(item.getProductId());
+            if (quantity == null || quantity <= 0) {
+                items.remove();
+                delta.items--;
+                delta.quantity -= item.getQuantity();
+            } else if (quantity != item.getQuantity()) {
+                delta.quantity += quantity - item.getQuantity();
+                item.setQuantity(quantity);
+            }
+        }
+        remaining.forEach((productId, quantity) -> {
+            if (quantity > 0) {
+                cart.getItems().add(CartItem.builder().productId(productId).quantity(quantity).cart(cart).build());
+                delta.items++;
+                delta.quantity += quantity;
+            }
+        });
+        return delta;
+    }
+
+    // Only rows this write touched count, and every one of them was version-checked, so the delta is exact
+    // even while other writers change other lines
+    private static class Counters {
+        int items;
+        int quantity;
+    }
+}
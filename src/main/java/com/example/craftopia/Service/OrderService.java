@@ -3,7 +3,6 @@ package com.example.craftopia.Service;
 import com.example.craftopia.DTO.OrderResponse;
 import com.example.craftopia.Entity.*;
 import com.example.craftopia.Mapper.OrderDTOMapper;
-import com.example.craftopia.Repository.CartRepository;
 import com.example.craftopia.Repository.OrderRepository;
 import com.example.craftopia.Repository.ProductRepository;
 import com.example.craftopia.Repository.UserRepository;
@@ -15,13 +14,15 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
     @Autowired
     private OrderRepository orderRepo;
-    @Autowired private CartRepository cartRepo;
+    @Autowired private CartStore cartStore;
     @Autowired private ProductRepository productRepo;
     @Autowired private UserRepository userRepo;
     @Autowired private SecurityUtil securityUtil;
@@ -31,27 +32,32 @@ public class OrderService {
     public OrderResponse placeOrder() {
         Long userId = securityUtil.getCurrentUserId();
         User user = userRepo.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(userId)
+        Map<Long, Integer> lines = cartStore.find(userId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
 
-        if (cart.getItems().isEmpty())
+        if (lines.isEmpty())
             throw new RuntimeException("Cart is empty");
 
         List<OrderItem> orderItems = new ArrayList<>();
         double totalAmount = 0;
 
-        for (CartItem cartItem : cart.getItems()) {
-            Product product = productRepo.findById(cartItem.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
+        // Money path: prices are read from the rows, in this transaction and in one query, never from the cache
+        Map<Long, Product> products = productRepo.findAllById(lines.keySet()).stream()
+                .filter(p -> !p.isDeleted())
+                .collect(Collectors.toMap(Product::getId, p -> p));
+
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) throw new RuntimeException("Product not found");
 
             OrderItem orderItem = OrderItem.builder()
                     .product(product)
-                    .quantity(cartItem.getQuantity())
+                    .quantity(line.getValue())
                     .price(product.getPrice())
                     .build();
 
             orderItems.add(orderItem);
-            totalAmount += product.getPrice() * cartItem.getQuantity();
+            totalAmount += product.getPrice() * line.getValue();
         }
 
         Order order = Order.builder()
@@ -68,8 +74,9 @@ public class OrderService {
         order.setItems(orderItems);
         orderRepo.save(order);
 
-        cart.getItems().clear(); // clear cart after order
-        cartRepo.save(cart);
+        // Take out what was ordered; anything added to the cart meanwhile stays there
+        cartStore.update(userId, current -> lines.forEach((productId, quantity) ->
+                current.computeIfPresent(productId, (id, inCart) -> inCart > quantity ? inCart - quantity : null)));
 
         return OrderDTOMapper.toDTO(order);
     }
@@ -84,7 +91,7 @@ public class OrderService {
 
     // Update status (admin logic)
     public OrderResponse updateStatus(Long orderId, OrderStatus status) {
-        Order order = orderRepo.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
+        Order order = orderRepo.findWithItemsById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
 
         order.setStatus(status);
         return OrderDTOMapper.toDTO(orderRepo.save(order));
@@ -0,0 +1,99 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.ProductResponse;
+import com.example.craftopia.Entity.Product;
+import com.example.craftopia.Mapper.ProductDTOMapper;
+import com.example.craftopia.Repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Read-through cache of live (not deleted) products by id. Off unless products.cache.enabled=true;
+// when off every lookup goes straight to the database.
+// Invalidation is local to this node: on a multi-node deployment another node may serve an updated or
+// deleted product for up to products.cache.ttl-seconds. So it is for display reads only; anything that
+// must know a product is live right now (adding to a cart, placing an order) reads the product table.
+@Component
+public class ProductCache {
+
+    @Autowired
+    private ProductRepository repo;
+
+    @Value("${products.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${products.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<Long, ProductResponse> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<ProductResponse> get(Long id) {
+        if (!enabled) return load(id);
+        // A null from the loader is not cached, so missing/deleted products are always re-checked
+        return Optional.ofNullable(cache.get(id, key -> load(key).orElse(null)));
+    }
+
+    // Live products among the ids, keyed by id; ids that are missing or deleted are simply absent.
+    // Everything not already cached is loaded with one query.
+    public Map<Long, ProductResponse> getAll(Collection<Long> ids) {
+        if (ids.isEmpty()) return Map.of();
+        if (!enabled) return loadAll(ids);
+        return cache.getAll(ids, this::loadAll);
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private Map<Long, ProductResponse> loadAll(Collection<? extends Long> ids) {
+        return repo.findAllById(List.copyOf(ids)).stream()
+                .filter(p -> !p.isDeleted())
+                .collect(Collectors.toMap(Product::getId, ProductDTOMapper::toDTO));
+    }
+
+    private Optional<ProductResponse> load(Long id) {
+        return repo.findById(id)
+                .filter(p -> !p.isDeleted())
+                .map(ProductDTOMapper::toDTO);
+    }
+}
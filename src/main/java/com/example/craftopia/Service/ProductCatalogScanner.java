@@ -0,0 +1,69 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.ProductPageResponse;
+import com.example.craftopia.DTO.ProductResponse;
+import com.example.craftopia.Entity.Product;
+import com.example.craftopia.Mapper.ProductDTOMapper;
+import com.example.craftopia.Repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Reads the catalog in keyset order. Kept out of ProductService so the in-memory
+// indexes that ProductService writes to can warm themselves up without a circular dependency.
+@Component
+public class ProductCatalogScanner {
+
+    @Autowired
+    private ProductRepository repo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // One page of products with id > afterId; mapped inside the transaction so lazy fields resolve
+    public ProductPageResponse fetchPage(Long afterId, int pageSize, String category) {
+        long cursor = afterId != null ? afterId : 0L;
+        Pageable limit = PageRequest.of(0, pageSize + 1); // one extra row tells us if there is a next page
+
+        return transactionTemplate.execute(status -> {
+            List<Product> products;
+            if (category != null && !category.isEmpty()) {
+                products = repo.findByIsDeletedFalseAndCategoryContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+                        category, cursor, limit);
+            } else {
+                products = repo.findByIsDeletedFalseAndIdGreaterThanOrderByIdAsc(cursor, limit);
+            }
+
+            boolean hasMore = products.size() > pageSize;
+            if (hasMore) {
+                products = products.subList(0, pageSize);
+            }
+
+            return ProductPageResponse.builder()
+                    .items(products.stream().map(ProductDTOMapper::toDTO).collect(Collectors.toList()))
+                    .nextCursor(hasMore ? products.get(products.size() - 1).getId() : null)
+                    .hasMore(hasMore)
+                    .build();
+        });
+    }
+
+    // Hands every live product to the consumer, one batch at a time. Returns how many were seen.
+    public long forEachBatch(int batchSize, Consumer<List<ProductResponse>> consumer) {
+        long seen = 0;
+        Long cursor = null;
+        ProductPageResponse page;
+        do {
+            page = fetchPage(cursor, batchSize, null);
+            consumer.accept(page.getItems());
+            seen += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (page.isHasMore());
+        return seen;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.ProductFacetResponse;
+import com.example.craftopia.DTO.ProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Storefront facet counts (category, style, tag, price band), maintained incrementally
+// by ProductService so a facet query never has to touch the catalog.
+@Service
+public class ProductFacetService {
+
+    @Autowired
+    private ProductCatalogScanner catalogScanner;
+
+    @Value("${facets.enabled:true}")
+    private boolean enabled;
+
+    @Value("${facets.warmup-batch-size:1000}")
+    private int warmupBatchSize;
+
+    // Upper bounds of the price bands; the last band is open-ended
+    @Value("${facets.price-bands:500,1000,2500,5000}")
+    private double[] priceBandLimits;
+
+    private final Map<String, Long> categories = new ConcurrentHashMap<>();
+    private final Map<String, Long> styles = new ConcurrentHashMap<>();
+    private final Map<String, Long> tags = new ConcurrentHashMap<>();
+    private final Map<String, Long> priceBands = new ConcurrentHashMap<>();
+
+    // What each product currently contributes, so updates and deletes can be applied by id
+    private final Map<Long, FacetKeys> counted = new ConcurrentHashMap<>();
+
+    // Products updated or deleted while the warm-up scan is running: the scan's snapshot of them is older
+    // than what those writes left, so it must not re-count them
+    private final Set<Long> writtenDuringWarmup = new HashSet<>();
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) return;
+
+        long scanned = catalogScanner.forEachBatch(warmupBatchSize, batch -> batch.forEach(this::putSnapshot));
+        synchronized (this) {
+            ready = true;
+            writtenDuringWarmup.clear();
+        }
+        System.out.println("Facet counts built from " + scanned + " products");
+    }
+
+    // Adds or re-counts a product
+    public synchronized void put(ProductResponse product) {
+        if (!enabled) return;
+        if (!ready) writtenDuringWarmup.add(product.getId());
+        count(product);
+    }
+
+    private synchronized void putSnapshot(ProductResponse product) {
+        if (!writtenDuringWarmup.contains(product.getId())) count(product);
+    }
+
+    private void count(ProductResponse product) {
+        FacetKeys keys = new FacetKeys(
+                normalize(product.getCategory()),
+                normalize(product.getStyle()),
+                product.getTags() == null ? List.of() : product.getTags().stream()
+                        .map(ProductFacetService::normalize)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .collect(Collectors.toList()),
+                priceBand(product.getPrice()));
+
+        FacetKeys previous = counted.put(product.getId(), keys);
+        if (previous != null) apply(previous, -1);
+        apply(keys, 1);
+    }
+
+    public void putAll(Collection<ProductResponse> products) {
+        products.forEach(this::put);
+    }
+
+    public synchronized void remove(Long productId) {
+        if (!enabled) return;
+        if (!ready) writtenDuringWarmup.add(productId);
+
+        FacetKeys previous = counted.remove(productId);
+        if (previous != null) apply(previous, -1);
+    }
+
+    // limit caps each facet to its top N values (0 = everything). Until the warm-up scan has finished the
+    // counts would be partial, so none are served: the response just says it is still warming up.
+    public ProductFacetResponse getFacets(int limit) {
+        if (enabled && !ready) {
+            return ProductFacetResponse.builder()
+                    .warmingUp(true)
+                    .categories(Map.of())
+                    .styles(Map.of())
+                    .tags(Map.of())
+                    .priceBands(Map.of())
+                    .build();
+        }
+        return ProductFacetResponse.builder()
+                .total(counted.size())
+                .categories(top(categories, limit))
+                .styles(top(styles, limit))
+                .tags(top(tags, limit))
+                .priceBands(top(priceBands, limit))
+                .build();
+    }
+
+    private void apply(FacetKeys keys, long delta) {
+        increment(categories, keys.category, delta);
+        increment(styles, keys.style, delta);
+        for (String tag : keys.tags) increment(tags, tag, delta);
+        increment(priceBands, keys.priceBand, delta);
+    }
+
+    private static void increment(Map<String, Long> counts, String key, long delta) {
+        if (key == null) return;
+        counts.compute(key, (k, v) -> {
+            long next = (v == null ? 0 : v) + delta;
+            return next > 0 ? next : null; // drop values nobody has any more
+        });
+    }
+
+    private static Map<String, Long> top(Map<String, Long> counts, int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private String priceBand(Double price) {
+        if (price == null) return null;
+
+        double lower = 0;
+        for (double upper : priceBandLimits) {
+            if (price < upper) return formatPrice(lower) + "-" + formatPrice(upper);
+            lower = upper;
+        }
+        return formatPrice(lower) + "+";
+    }
+
+    private static String formatPrice(double price) {
+        return price == Math.rint(price) ? String.valueOf((long) price) : String.valueOf(price);
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) return null;
+        return value.trim();
+    }
+
+    private static class FacetKeys {
+        final String category;
+        final String style;
+        final List<String> tags;
+        final String priceBand;
+
+        FacetKeys(String category, String style, List<String> tags, String priceBand) {
+            this.category = category;
+            this.style = style;
+            this.tags = tags;
+            this.priceBand = priceBand;
+        }
+    }
+}
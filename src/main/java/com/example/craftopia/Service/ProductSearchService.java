@@ -0,0 +1,268 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.ProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over name, description, tags and translatedText.
+// ProductService keeps it in sync on every write; it is rebuilt from the database on startup.
+@Service
+public class ProductSearchService {
+
+    // Field weights: a hit in the name matters more than one buried in the description
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float TAG_WEIGHT = 2.0f;
+    private static final float TRANSLATED_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // BM25 term-frequency saturation
+    private static final float K1 = 1.2f;
+
+    @Autowired
+    private ProductCatalogScanner catalogScanner;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.warmup-batch-size:1000}")
+    private int warmupBatchSize;
+
+    // term -> (productId -> weighted term frequency). Sorted, so a prefix query is a range scan.
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+
+    // productId -> the terms it was indexed under, so an update or delete can unlink it
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ids indexed or removed by live writes before the warm-up finished. The scan's snapshot of them is older
+    // than what those writes left, so the scan skips them. Guarded by the write lock.
+    private final Set<Long> writtenDuringWarmup = new HashSet<>();
+
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) return;
+
+        long start = System.currentTimeMillis();
+        long indexed = catalogScanner.forEachBatch(warmupBatchSize, this::indexSnapshot);
+        lock.writeLock().lock();
+        try {
+            ready = true;
+            writtenDuringWarmup.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Search index built: " + indexed + " products in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Until the warm-up finishes, callers fall back to the database query
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public void index(ProductResponse product) {
+        indexAll(List.of(product));
+    }
+
+    public void indexAll(Collection<ProductResponse> products) {
+        if (!enabled) return;
+
+        lock.writeLock().lock();
+        try {
+            for (ProductResponse product : products) {
+                if (!ready) writtenDuringWarmup.add(product.getId());
+                link(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A warm-up batch: everything except products a live write has already indexed or removed
+    private void indexSnapshot(Collection<ProductResponse> products) {
+        lock.writeLock().lock();
+        try {
+            for (ProductResponse product : products) {
+                if (!writtenDuringWarmup.contains(product.getId())) link(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (!enabled) return;
+
+        lock.writeLock().lock();
+        try {
+            if (!ready) writtenDuringWarmup.add(productId);
+            unlink(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called under the write lock
+    private void link(ProductResponse product) {
+        unlink(product.getId());
+
+        Map<String, Float> frequencies = new HashMap<>();
+        addField(frequencies, product.getName(), NAME_WEIGHT);
+        addField(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+        addField(frequencies, product.getTranslatedText(), TRANSLATED_WEIGHT);
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) addField(frequencies, tag, TAG_WEIGHT);
+        }
+
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>())
+                    .put(product.getId(), entry.getValue());
+        }
+        documentTerms.put(product.getId(), frequencies.keySet());
+    }
+
+    // False if no word of the query is long enough to be indexed (see tokenize): only the database can answer it
+    public boolean canSearch(String query) {
+        return !parseQuery(query).isEmpty();
+    }
+
+    // Ranked product ids. Each whitespace-separated word is a term; a trailing '*' makes it a prefix.
+    // matchAll = AND (every term must match), otherwise OR.
+    public List<Long> search(String query, boolean matchAll, int limit) {
+        List<QueryTerm> terms = parseQuery(query);
+        if (terms.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documentTerms.size();
+            Map<Long, Float> scores = null;
+
+            for (QueryTerm term : terms) {
+                Map<Long, Float> termScores = scoreTerm(term, documentCount);
+
+                if (scores == null) {
+                    scores = termScores;
+                } else if (matchAll) {
+                    Map<Long, Float> intersection = new HashMap<>();
+                    for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                        Float other = termScores.get(entry.getKey());
+                        if (other != null) intersection.put(entry.getKey(), entry.getValue() + other);
+                    }
+                    scores = intersection;
+                } else {
+                    for (Map.Entry<Long, Float> entry : termScores.entrySet()) {
+                        scores.merge(entry.getKey(), entry.getValue(), Float::sum);
+                    }
+                }
+
+                if (matchAll && scores.isEmpty()) break;
+            }
+
+            return topK(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Float> scoreTerm(QueryTerm term, int documentCount) {
+        Map<Long, Float> scores = new HashMap<>();
+
+        Collection<Map<Long, Float>> matches;
+        if (term.prefix) {
+            matches = postings.subMap(term.text, true, term.text + Character.MAX_VALUE, false).values();
+        } else {
+            Map<Long, Float> exact = postings.get(term.text);
+            matches = exact != null ? List.of(exact) : List.of();
+        }
+
+        for (Map<Long, Float> docs : matches) {
+            int df = docs.size();
+            double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            for (Map.Entry<Long, Float> doc : docs.entrySet()) {
+                float tf = doc.getValue();
+                float score = (float) (idf * (tf * (K1 + 1)) / (tf + K1));
+                scores.merge(doc.getKey(), score, Float::sum);
+            }
+        }
+        return scores;
+    }
+
+    private List<Long> topK(Map<Long, Float> scores, int limit) {
+        if (scores == null || scores.isEmpty()) return List.of();
+
+        // Min-heap of the best `limit` hits, so ranking is O(n log k) instead of a full sort
+        PriorityQueue<Map.Entry<Long, Float>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) heap.poll();
+        }
+
+        List<Long> ids = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) ids.add(heap.poll().getKey());
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private void unlink(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) return;
+
+        for (String term : terms) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(productId);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+
+    private static void addField(Map<String, Float> frequencies, String text, float weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+    }
+
+    private static List<QueryTerm> parseQuery(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (query == null) return terms;
+
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < tokens.size(); i++) {
+                // "hand-made*" -> "hand" AND prefix "made"
+                terms.add(new QueryTerm(tokens.get(i), prefix && i == tokens.size() - 1));
+            }
+        }
+        return terms;
+    }
+
+    // Lower-cased runs of letters, combining marks (needed for Indic scripts) and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) return tokens;
+
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{M}\\p{N}]+")) {
+            if (token.length() >= 2) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static class QueryTerm {
+        final String text;
+        final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package com.example.craftopia.Service;
 
+import com.example.craftopia.DTO.AIGeneratedProductDetails;
+import com.example.craftopia.DTO.CsvImportReport;
+import com.example.craftopia.DTO.CsvRowError;
+import com.example.craftopia.DTO.ProductFacetResponse;
+import com.example.craftopia.DTO.ProductPageResponse;
 import com.example.craftopia.DTO.ProductRequest;
 import com.example.craftopia.DTO.ProductResponse;
 import com.example.craftopia.DTO.ProductUpdateRequest;
 import com.example.craftopia.Entity.Product;
 import com.example.craftopia.Entity.User;
 import com.example.craftopia.Mapper.ProductDTOMapper;
+import com.example.craftopia.Repository.ProductJdbcRepository;
 import com.example.craftopia.Repository.ProductRepository;
 import com.example.craftopia.Repository.UserRepository;
+import com.example.craftopia.Util.CSVUtil;
+import com.example.craftopia.Util.LanguageDetector;
+import com.example.craftopia.Util.ParallelCsvParser;
+import com.example.craftopia.Util.ParsedCsvRow;
 import com.example.craftopia.Util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import com.opencsv.CSVReader;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.InputStreamReader;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,32 +55,151 @@ public class ProductService {
     @Autowired
     public SecurityUtil securityUtil;
 
-    public List<ProductResponse> bulkCreateProductsFromCSV(MultipartFile file) {
-        User seller = securityUtil.getCurrentUser();
+    @Autowired
+    private ProductCatalogScanner catalogScanner;
+
+    @Autowired
+    private ProductSearchService searchService;
+
+    @Autowired
+    private ProductFacetService facetService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductJdbcRepository productJdbcRepo;
+
+    @Autowired
+    private ImageDuplicateIndex imageDuplicateIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TranslationMemory translationMemory;
+
+    @Value("${products.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${products.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${search.default-limit:50}")
+    private int defaultSearchLimit;
+
+    @Value("${products.csv.chunk-size:500}")
+    private int csvChunkSize;
+
+    @Value("${products.csv.parallelism:0}") // 0 = one thread per core
+    private int csvParallelism;
+
+    @Value("${products.csv.parallel-chunk-bytes:1048576}")
+    private int csvParallelChunkBytes;
+
+    // Row errors kept in the report; past this only the failed count grows, so a file that is wrong
+    // on every row doesn't put a million errors on the heap and in the response
+    @Value("${products.csv.max-reported-errors:1000}")
+    private int csvMaxReportedErrors;
+
+    // Streams the CSV and commits every csvChunkSize valid rows as one JDBC batch.
+    // Bad rows (and rows of a chunk the database rejects) are reported instead of failing the upload.
+    // parallel=true parses on all cores (see ParallelCsvParser); rows are still written in file order.
+    // If the file cannot be read to the end once chunks have been committed, the rows read so far are still
+    // written and the report says where it stopped (fatalError), so the seller re-uploads only the rest.
+    public CsvImportReport bulkCreateProductsFromCSV(MultipartFile file, boolean parallel) {
+        CsvImportSink sink = new CsvImportSink(securityUtil.getCurrentUser());
+
+        try {
+            if (parallel) {
+                Path spooled = Files.createTempFile("craftopia-import-", ".csv");
+                try {
+                    file.transferTo(spooled);
+                    new ParallelCsvParser(csvParallelism, csvParallelChunkBytes).parse(spooled, sink);
+                } finally {
+                    Files.deleteIfExists(spooled);
+                }
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    CSVUtil.readRows(in, sink);
+                }
+            }
+            sink.flush();
+        } catch (IOException e) {
+            // Nothing committed yet: the upload simply failed and can be retried as is
+            if (sink.report.getImported() == 0) throw new RuntimeException("Failed to process CSV: " + e.getMessage());
+            sink.flush(); // rows read before the failure are whole
+            sink.report.setFatalError("CSV could not be read after row " + sink.lastRowNumber
+                    + ", rows up to there were processed: " + e.getMessage());
+        }
+
+        return sink.report;
+    }
+
+    // Collects parsed rows into chunks and writes each full chunk; always fed from a single thread
+    private class CsvImportSink implements Consumer<ParsedCsvRow> {
+        private final User seller;
+        private final CsvImportReport report = CsvImportReport.builder().build();
+        private final List<ParsedCsvRow> chunk = new ArrayList<>(csvChunkSize);
+        private long lastRowNumber;
+
+        CsvImportSink(User seller) {
+            this.seller = seller;
+        }
+
+        @Override
+        public void accept(ParsedCsvRow row) {
+            report.setTotalRows(report.getTotalRows() + 1);
+            lastRowNumber = row.getRowNumber();
+            if (!row.isValid()) {
+                recordCsvFailure(report, row.getRowNumber(), row.getError());
+                return;
+            }
+            chunk.add(row);
+            if (chunk.size() >= csvChunkSize) flush();
+        }
+
+        void flush() {
+            writeCsvChunk(chunk, seller, report);
+            chunk.clear();
+        }
+    }
+
+    private void writeCsvChunk(List<ParsedCsvRow> rows, User seller, CsvImportReport report) {
+        if (rows.isEmpty()) return;
+
+        List<Product> products = rows.stream()
+                .map(row -> {
+                    Product product = ProductDTOMapper.toEntity(row.getRequest());
+                    product.setSeller(seller);
+                    return product;
+                })
+                .collect(Collectors.toList());
 
-        List<Product> productList = new ArrayList<>();
-
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            String[] line;
-            reader.readNext(); // Skip header
-
-            while ((line = reader.readNext()) != null) {
-                Product product = Product.builder()
-                        .name(line[0])
-                        .description(line[1])
-                        .price(Double.parseDouble(line[2]))
-                        .category(line[3])
-                        .imageUrl(line[4])
-                        .seller(seller)
-                        .build();
-                productList.add(product);
+        try {
+            List<Long> ids = transactionTemplate.execute(status -> productJdbcRepo.insertAll(products));
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).setId(ids.get(i));
             }
+        } catch (DataAccessException e) {
+            String reason = "Insert failed: " + e.getMostSpecificCause().getMessage();
+            rows.forEach(row -> recordCsvFailure(report, row.getRowNumber(), reason));
+            return;
+        }
 
-            List<Product> saved = repo.saveAll(productList);
-            return saved.stream().map(ProductDTOMapper::toDTO).collect(Collectors.toList());
+        List<ProductResponse> created = products.stream().map(ProductDTOMapper::toDTO).collect(Collectors.toList());
+        searchService.indexAll(created);
+        facetService.putAll(created);
+        productCache.invalidateAll(created.stream().map(ProductResponse::getId).toList());
+        report.setImported(report.getImported() + created.size());
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to process CSV: " + e.getMessage());
+    private void recordCsvFailure(CsvImportReport report, long rowNumber, String error) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < csvMaxReportedErrors) {
+            report.getErrors().add(new CsvRowError(rowNumber, error));
+        } else {
+            report.setErrorsTruncated(true);
         }
     }
 
@@ -82,18 +225,47 @@ public class ProductService {
                     return product;
                 })
                 .collect(Collectors.toList());
+        fillKnownTranslations(productEntities);
 
         List<Product> saved = repo.saveAll(productEntities);
-        return saved.stream().map(ProductDTOMapper::toDTO).collect(Collectors.toList());
+        saved.forEach(p -> imageDuplicateIndex.add(p.getId(), p.getImageHash()));
+        List<ProductResponse> created = saved.stream().map(ProductDTOMapper::toDTO).collect(Collectors.toList());
+        searchService.indexAll(created);
+        facetService.putAll(created);
+        productCache.invalidateAll(created.stream().map(ProductResponse::getId).toList());
+        return created;
     }
 
 
 
     public ProductResponse createProduct(ProductRequest requestDTO) {
-        User seller = securityUtil.getCurrentUser();
+        return createProduct(requestDTO, securityUtil.getCurrentUser());
+    }
+
+    // inTransaction gets the new id inside the insert's transaction (e.g. to queue the product's image uploads),
+    // so either both are stored or neither is
+    public ProductResponse createProduct(ProductRequest requestDTO, Consumer<Long> inTransaction) {
+        return createProduct(requestDTO, securityUtil.getCurrentUser(), inTransaction);
+    }
+
+    // For callers off the request thread (e.g. auto-fill jobs), where there is no security context
+    public ProductResponse createProduct(ProductRequest requestDTO, User seller) {
+        return createProduct(requestDTO, seller, id -> { });
+    }
+
+    private ProductResponse createProduct(ProductRequest requestDTO, User seller, Consumer<Long> inTransaction) {
         Product product = ProductDTOMapper.toEntity(requestDTO);
         product.setSeller(seller);
-        return ProductDTOMapper.toDTO(repo.save(product));
+        ProductResponse created = transactionTemplate.execute(status -> {
+            Product saved = repo.save(product);
+            inTransaction.accept(saved.getId());
+            return ProductDTOMapper.toDTO(saved);
+        });
+        // The in-memory indexes only hear about the product once it is committed
+        searchService.index(created);
+        facetService.put(created);
+        imageDuplicateIndex.add(created.getId(), product.getImageHash());
+        return created;
     }
 
     public List<ProductResponse> getAllProducts(String category, String keyword) {
@@ -102,6 +274,7 @@ public class ProductService {
         if (category != null && !category.isEmpty()) {
             products = repo.findByIsDeletedFalseAndCategoryContainingIgnoreCase(category);
         } else if (keyword != null && !keyword.isEmpty()) {
+            // Kept as it always was (every product whose name contains the text); ranked search is /products/search
             products = repo.findByIsDeletedFalseAndNameContainingIgnoreCase(keyword);
         } else {
             products = repo.findByIsDeletedFalse();
@@ -112,29 +285,183 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
-    public ProductResponse getProductById(Long id) {
-        Product product = repo.findById(id)
+    // Ranked full-text search over name, description, tags and translated text.
+    // Falls back to name LIKE queries while the index is still warming up (or disabled), and for queries
+    // made only of words too short to be indexed.
+    public List<ProductResponse> searchProducts(String query, boolean matchAll, Integer limit) {
+        if (!searchService.isReady() || !searchService.canSearch(query)) {
+            return searchByName(query, matchAll, resolveSearchLimit(limit));
+        }
+
+        List<Long> rankedIds = searchService.search(query, matchAll, resolveSearchLimit(limit));
+        Map<Long, Product> byId = repo.findAllById(rankedIds).stream()
                 .filter(p -> !p.isDeleted())
+                .collect(Collectors.toMap(Product::getId, p -> p));
+
+        return rankedIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(ProductDTOMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    // Unranked, in id order: products whose name contains every word (matchAll) or any word of the query.
+    // A trailing '*' is dropped, since "contains" already matches prefixes.
+    private List<ProductResponse> searchByName(String query, boolean matchAll, int limit) {
+        List<Specification<Product>> words = new ArrayList<>();
+        for (String word : (query == null ? "" : query.trim()).split("\\s+")) {
+            String text = word.endsWith("*") ? word.substring(0, word.length() - 1) : word;
+            if (text.isEmpty()) continue;
+            String pattern = "%" + text.toLowerCase(Locale.ROOT).replace("\\", "\\\\")
+                    .replace("%", "\\%").replace("_", "\\_") + "%";
+            words.add((root, q, cb) -> cb.like(cb.lower(root.get("name")), pattern, '\\'));
+        }
+        if (words.isEmpty()) return List.of();
+
+        Specification<Product> live = (root, q, cb) -> cb.isFalse(root.get("isDeleted"));
+        Specification<Product> spec = live.and(matchAll ? Specification.allOf(words) : Specification.anyOf(words));
+        return repo.findAll(spec, PageRequest.of(0, limit, Sort.by("id"))).stream()
+                .map(ProductDTOMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    private int resolveSearchLimit(Integer limit) {
+        if (limit == null || limit <= 0) return defaultSearchLimit;
+        return Math.min(limit, maxPageSize);
+    }
+
+    public ProductFacetResponse getFacets(Integer limit) {
+        return facetService.getFacets(limit != null ? limit : 0);
+    }
+
+    // One keyset page of the catalog: products with id > cursor, in id order.
+    // Ids are IDENTITY-generated, so id order is also creation order.
+    public ProductPageResponse getProductPage(Long cursor, Integer size, String category) {
+        return catalogScanner.fetchPage(cursor, resolvePageSize(size), category);
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) return defaultPageSize;
+        return Math.min(size, maxPageSize);
+    }
+
+    public ProductResponse getProductById(Long id) {
+        return productCache.get(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+    }
 
-        return ProductDTOMapper.toDTO(product);
+    public Map<String, Object> getCacheStats() {
+        return productCache.stats();
     }
 
     public ProductResponse partialUpdateProduct(Long id, ProductUpdateRequest dto) {
-        Product product = repo.findById(id)
-                .filter(p -> !p.isDeleted())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        return partialUpdateProduct(id, dto, productId -> { });
+    }
+
+    // Read and written under the row lock, like the background writers (uploads landing, enrichment),
+    // so a PATCH never writes back a stale copy of fields one of them set in the meantime.
+    // onImageReplaced runs inside that transaction when the PATCH sets a new image URL (e.g. to cancel the
+    // product's queued uploads), so no upload can land between the new URL and the cancel.
+    public ProductResponse partialUpdateProduct(Long id, ProductUpdateRequest dto, Consumer<Long> onImageReplaced) {
+        ProductResponse response = transactionTemplate.execute(status -> {
+            Product product = repo.findByIdForUpdate(id)
+                    .filter(p -> !p.isDeleted())
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+
+            if (dto.getName() != null) product.setName(dto.getName());
+            if (dto.getDescription() != null) product.setDescription(dto.getDescription());
+            if (dto.getPrice() != null) product.setPrice(dto.getPrice());
+            if (dto.getCategory() != null) product.setCategory(dto.getCategory());
+            if (dto.getImageUrl() != null) {
+                product.setImageUrl(dto.getImageUrl());
+                product.setImageVariants(null); // renditions of the old image
+                product.setImageHash(null);
+                product.setImageGeneration(product.getImageGeneration() + 1);
+                onImageReplaced.accept(id);
+            }
+            return ProductDTOMapper.toDTO(repo.save(product));
+        });
+        productCache.invalidate(id);
+        searchService.index(response);
+        facetService.put(response);
+        if (dto.getImageUrl() != null) imageDuplicateIndex.remove(id);
+        return response;
+    }
 
-        if (dto.getName() != null) product.setName(dto.getName());
-        if (dto.getDescription() != null) product.setDescription(dto.getDescription());
-        if (dto.getPrice() != null) product.setPrice(dto.getPrice());
-        if (dto.getCategory() != null) product.setCategory(dto.getCategory());
-        if (dto.getImageUrl() != null) product.setImageUrl(dto.getImageUrl());
 
-        Product updated = repo.save(product);
-        return ProductDTOMapper.toDTO(updated);
+    // Writes AI enrichment back onto an existing product. Only fills what the seller left blank;
+    // AI tags are added to the seller's own. Empty if the product was deleted in the meantime.
+    public Optional<ProductResponse> applyEnrichment(Long id, AIGeneratedProductDetails details) {
+        ProductResponse response = transactionTemplate.execute(status -> {
+            Product product = repo.findByIdForUpdate(id).filter(p -> !p.isDeleted()).orElse(null);
+            if (product == null) return null;
+
+            // Checked before the description is filled in below, which would make it English
+            if (isBlank(product.getTranslatedText()) && !isBlank(product.getDescription())
+                    && !LanguageDetector.isEnglish(product.getDescription())) {
+                product.setTranslatedText(details.getEnglishDescription());
+            }
+            if (isBlank(product.getDescription())) product.setDescription(details.getEnglishDescription());
+            if (isBlank(product.getCategory())) product.setCategory(details.getCategory());
+            if (isBlank(product.getStyle())) product.setStyle(details.getOccasion());
+            if (details.getTags() != null) {
+                List<String> tags = product.getTags() != null ? product.getTags() : new ArrayList<>();
+                for (String tag : details.getTags()) {
+                    if (tags.stream().noneMatch(t -> t.equalsIgnoreCase(tag))) tags.add(tag);
+                }
+                product.setTags(tags);
+            }
+            return ProductDTOMapper.toDTO(repo.save(product));
+        });
+        if (response == null) return Optional.empty();
+
+        productCache.invalidate(id);
+        searchService.index(response);
+        facetService.put(response);
+        return Optional.of(response);
+    }
+
+    // Rows that came in with regional text but no translation get one from the translation memory
+    // when it has already seen the phrase. One lookup for the whole upload, and never a model call.
+    private void fillKnownTranslations(List<Product> products) {
+        List<Product> untranslated = products.stream()
+                .filter(p -> !isBlank(p.getOriginalLanguageText()) && isBlank(p.getTranslatedText()))
+                .toList();
+        if (untranslated.isEmpty()) return;
+
+        Map<String, String> known = translationMemory.lookupAll(
+                untranslated.stream().map(Product::getOriginalLanguageText).toList());
+        untranslated.forEach(p -> p.setTranslatedText(known.get(p.getOriginalLanguageText())));
     }
 
+    // Patches in an image that finished uploading in the background: the main image when variant is null,
+    // otherwise that imageVariants entry. Empty if the product was deleted in the meantime, or its image
+    // was replaced since the upload was queued (imageGeneration moved on).
+    public Optional<ProductResponse> applyUploadedImage(Long id, long imageGeneration, String variant, String url) {
+        ProductResponse response = transactionTemplate.execute(status -> {
+            Product product = repo.findByIdForUpdate(id).filter(p -> !p.isDeleted()).orElse(null);
+            if (product == null || product.getImageGeneration() != imageGeneration) return null;
+
+            if (variant == null) {
+                product.setImageUrl(url);
+            } else {
+                Map<String, String> variants = product.getImageVariants() != null
+                        ? new LinkedHashMap<>(product.getImageVariants())
+                        : new LinkedHashMap<>();
+                variants.put(variant, url);
+                product.setImageVariants(variants);
+            }
+            return ProductDTOMapper.toDTO(repo.save(product));
+        });
+        if (response == null) return Optional.empty();
+
+        productCache.invalidate(id);
+        return Optional.of(response);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 
     public void deleteProduct(Long id) {
         Product product = repo.findById(id)
@@ -143,5 +470,9 @@ public class ProductService {
 
         product.setDeleted(true);
         repo.save(product);
+        productCache.invalidate(id);
+        searchService.remove(id);
+        facetService.remove(id);
+        imageDuplicateIndex.remove(id);
     }
 }
@@ -0,0 +1,149 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.Entity.TranslationMemoryEntry;
+import com.example.craftopia.Repository.TranslationMemoryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// Every caption ever translated, so a phrase artisans reuse goes to Gemini once per catalog, not once per product.
+// Entries live in the translation_memory table; the most used ones are also kept in a bounded in-memory tier.
+// Keys are over normalized text, so spacing and Unicode composition don't defeat a match. Letter case is kept:
+// "Apple" and "apple", or an acronym and the word it spells, may not translate the same.
+// The key includes the prompt version, so changing the prompt retires every remembered translation.
+@Service
+public class TranslationMemory {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private TranslationMemoryRepository repo;
+
+    @Value("${ai.translation-memory.hot-entries:10000}")
+    private long hotEntries;
+
+    private Cache<String, String> hot;
+
+    private final AtomicLong hotHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        hot = Caffeine.newBuilder().maximumSize(hotEntries).build();
+    }
+
+    // NFKC folds compatibility forms (full-width Latin, ligatures) and fixes composition order of Indic matras
+    static String normalize(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(folded).replaceAll(" ").trim();
+    }
+
+    static String key(String text) {
+        return GeminiResultCache.key("translate", GeminiProductEnrichmentService.PROMPT_VERSION, "en", normalize(text));
+    }
+
+    public Optional<String> lookup(String text) {
+        if (isBlank(text)) return Optional.empty();
+
+        String key = key(text);
+        String translated = hot.getIfPresent(key);
+        if (translated != null) {
+            hotHits.incrementAndGet();
+            return Optional.of(translated);
+        }
+
+        translated = repo.findById(key).map(TranslationMemoryEntry::getTranslatedText).orElse(null);
+        if (translated == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        storeHits.incrementAndGet();
+        hot.put(key, translated);
+        return Optional.of(translated);
+    }
+
+    // Source text -> translation for every text the memory knows; one query covers all hot-tier misses
+    public Map<String, String> lookupAll(Collection<String> texts) {
+        Map<String, String> found = new HashMap<>();
+        Map<String, List<String>> missingByKey = new HashMap<>();
+        for (String text : texts) {
+            if (isBlank(text) || found.containsKey(text)) continue;
+
+            String key = key(text);
+            String translated = hot.getIfPresent(key);
+            if (translated != null) {
+                hotHits.incrementAndGet();
+                found.put(text, translated);
+            } else {
+                missingByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(text);
+            }
+        }
+        if (missingByKey.isEmpty()) return found;
+
+        for (TranslationMemoryEntry entry : repo.findAllById(missingByKey.keySet())) {
+            List<String> sources = missingByKey.remove(entry.getSourceHash());
+            storeHits.addAndGet(sources.size());
+            hot.put(entry.getSourceHash(), entry.getTranslatedText());
+            sources.forEach(source -> found.put(source, entry.getTranslatedText()));
+        }
+        missingByKey.values().forEach(sources -> misses.addAndGet(sources.size()));
+        return found;
+    }
+
+    // Callers only store real model output; a fallback (the untranslated text) must never be remembered
+    public void remember(String source, String translated) {
+        if (isBlank(source) || isBlank(translated)) return;
+
+        String key = key(source);
+        hot.put(key, translated);
+        try {
+            repo.save(TranslationMemoryEntry.builder()
+                    .sourceHash(key)
+                    .sourceText(source)
+                    .translatedText(translated)
+                    .build());
+            writes.incrementAndGet();
+        } catch (DataAccessException e) {
+            // Usually a concurrent insert of the same phrase; the hot tier has it either way
+            System.err.println("Translation memory write failed: " + e.getMessage());
+        }
+    }
+
+    // Forgets every translation, in memory and in the table; returns how many the table held
+    public long purge() {
+        hot.invalidateAll();
+        long removed = repo.count();
+        repo.deleteAllInBatch();
+        return removed;
+    }
+
+    public Map<String, Object> stats() {
+        long hits = hotHits.get() + storeHits.get();
+        long lookups = hits + misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", repo.count());
+        stats.put("hotSize", hot.estimatedSize());
+        stats.put("hotHits", hotHits.get());
+        stats.put("storeHits", storeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("writes", writes.get());
+        return stats;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.craftopia.Util;
+
+// Adaptive cap on in-flight calls (additive increase, multiplicative decrease). Each fast success
+// raises the limit by 1/limit (about +1 per round of calls); a failure, timeout or slow response
+// multiplies it by backoffRatio. Calls over the limit are refused at once rather than queued, so a
+// slow dependency can never tie up more than `limit` threads.
+public class AimdConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long slowCallMillis;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long slowCallMillis, double backoffRatio) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.slowCallMillis = slowCallMillis;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) return false;
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess(long latencyMillis) {
+        inFlight--;
+        if (latencyMillis >= slowCallMillis) {
+            decrease();
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public synchronized void onFailure() {
+        inFlight--;
+        decrease();
+    }
+
+    // Released without a verdict on the dependency's health
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
@@ -1,41 +1,75 @@
 package com.example.craftopia.Util;
 
 import com.example.craftopia.DTO.ProductRequest;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
+// Product CSV layout: name, description, price, category, imageUrl (first line is a header)
 @Component
 public class CSVUtil {
 
-    public static List<ProductRequest> parseCSV(MultipartFile file) throws IOException {
-        List<ProductRequest> products = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
-            boolean isFirstLine = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) { isFirstLine = false; continue; }
-
-                String[] values = line.split(",");
-                ProductRequest product = ProductRequest.builder()
-                        .name(values[0].trim())
-                        .description(values[1].trim())
-                        .price(Double.parseDouble(values[2].trim()))
-                        .category(values[3].trim())
-                        .imageUrl(values[4].trim())
-                        .build();
-                products.add(product);
+    private static final int COLUMNS = 5;
+
+    // Streams every data row to the handler as it is read, so memory does not grow with the file
+    public static void readRows(InputStream in, Consumer<ParsedCsvRow> handler) throws IOException {
+        readRows(in, true, 2, handler);
+    }
+
+    // Same, for a slice of a file: firstRowNumber is the row number of the slice's first record
+    public static void readRows(InputStream in, boolean skipHeader, long firstRowNumber,
+                                Consumer<ParsedCsvRow> handler) throws IOException {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            if (skipHeader) reader.readNext();
+
+            String[] values;
+            long rowNumber = firstRowNumber;
+            while ((values = reader.readNext()) != null) {
+                if (!isBlank(values)) handler.accept(parseRow(rowNumber, values));
+                rowNumber++;
             }
+        } catch (CsvValidationException e) {
+            throw new IOException("Malformed CSV at line " + e.getLineNumber() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // A bad row is reported, never thrown, so one typo cannot sink the whole upload
+    public static ParsedCsvRow parseRow(long rowNumber, String[] values) {
+        if (values.length < COLUMNS) {
+            return ParsedCsvRow.failed(rowNumber, "Expected " + COLUMNS + " columns but found " + values.length);
         }
 
-        return products;
+        String name = values[0].trim();
+        if (name.isEmpty()) {
+            return ParsedCsvRow.failed(rowNumber, "Name is required");
+        }
+
+        double price;
+        try {
+            price = Double.parseDouble(values[2].trim());
+        } catch (NumberFormatException e) {
+            return ParsedCsvRow.failed(rowNumber, "Invalid price: '" + values[2] + "'");
+        }
+        if (price < 0 || Double.isNaN(price) || Double.isInfinite(price)) {
+            return ParsedCsvRow.failed(rowNumber, "Invalid price: '" + values[2] + "'");
+        }
+
+        return ParsedCsvRow.ok(rowNumber, ProductRequest.builder()
+                .name(name)
+                .description(values[1].trim())
+                .price(price)
+                .category(values[3].trim())
+                .imageUrl(values[4].trim())
+                .build());
     }
-}
 
+    private static boolean isBlank(String[] values) {
+        return values.length == 1 && values[0].isBlank();
+    }
+}
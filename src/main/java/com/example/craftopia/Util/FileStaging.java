@@ -0,0 +1,49 @@
+package com.example.craftopia.Util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+// Local disk area for uploads that outlive the request that brought them in
+@Component
+public class FileStaging {
+
+    @Value("${app.staging-dir:${java.io.tmpdir}/craftopia-staging}")
+    private Path stagingDir;
+
+    public Path stage(MultipartFile file, String prefix) {
+        try {
+            Files.createDirectories(stagingDir);
+            Path target = stagingDir.resolve(prefix + UUID.randomUUID() + ".upload");
+            file.transferTo(target);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stage upload", e);
+        }
+    }
+
+    // A fresh, not yet existing path in the staging area, for files the app generates itself
+    public Path newFile(String prefix, String suffix) {
+        try {
+            Files.createDirectories(stagingDir);
+            return stagingDir.resolve(prefix + UUID.randomUUID() + suffix);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create staging directory", e);
+        }
+    }
+
+    public void discard(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete staged file " + file + ": " + e.getMessage());
+        }
+    }
+}
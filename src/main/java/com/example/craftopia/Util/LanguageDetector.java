@@ -0,0 +1,135 @@
+package com.example.craftopia.Util;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// In-process language identification for captions: English and the major Indian languages.
+// The script is read from Unicode block ranges; where one script serves several languages
+// (Devanagari, Bengali, Latin) a handful of very common words decides. One pass over the text, no I/O.
+// Returns null when unsure, so callers can fall back to asking the model.
+public class LanguageDetector {
+
+    public static final String ENGLISH = "English";
+
+    // Share of the letters that must be in one script before that script counts as the text's
+    private static final double DOMINANT_SCRIPT_SHARE = 0.6;
+
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[\\s\\p{Punct}।॥]+");
+
+    private static final Set<String> HINDI_WORDS = Set.of(
+            "है", "हैं", "और", "का", "की", "के", "में", "यह", "से", "को", "पर", "बहुत", "हुआ", "हुई", "था");
+    private static final Set<String> MARATHI_WORDS = Set.of(
+            "आहे", "आणि", "हे", "ही", "च्या", "मध्ये", "आहेत", "केलेले", "केलेली", "सुंदर");
+    private static final Set<String> NEPALI_WORDS = Set.of(
+            "छ", "छन्", "र", "मा", "हो", "गरिएको", "यो", "लागि");
+
+    // Romanized Hindi/Hinglish, common in captions typed on an English keyboard
+    private static final Set<String> ROMANIZED_HINDI_WORDS = Set.of(
+            "hai", "hain", "aur", "ka", "ki", "ke", "mein", "yeh", "ye", "se", "ko", "bahut", "sundar",
+            "haath", "hath", "bana", "banaya", "bani", "hua", "hui", "wala", "wali", "liye", "accha", "achha");
+
+    private static final Script[] SCRIPTS = Script.values();
+
+    private LanguageDetector() {
+    }
+
+    public static boolean isEnglish(String text) {
+        return ENGLISH.equals(detect(text));
+    }
+
+    // Language name in the same form the model answers with (e.g. "Hindi", "Tamil"), or null if unsure
+    public static String detect(String text) {
+        if (text == null) return null;
+
+        int[] letters = new int[SCRIPTS.length];
+        int total = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (!Character.isLetter(codePoint) && Character.getType(codePoint) != Character.NON_SPACING_MARK
+                    && Character.getType(codePoint) != Character.COMBINING_SPACING_MARK) {
+                continue;
+            }
+            letters[Script.of(codePoint).ordinal()]++;
+            total++;
+        }
+        if (total == 0) return null;
+
+        Script dominant = Script.OTHER;
+        for (Script script : SCRIPTS) {
+            if (letters[script.ordinal()] > letters[dominant.ordinal()]) dominant = script;
+        }
+        if (dominant == Script.OTHER || letters[dominant.ordinal()] < total * DOMINANT_SCRIPT_SHARE) return null;
+
+        return switch (dominant) {
+            case LATIN -> latin(text);
+            case DEVANAGARI -> devanagari(text);
+            case BENGALI -> text.indexOf('ৰ') >= 0 || text.indexOf('ৱ') >= 0 ? "Assamese" : "Bengali";
+            default -> dominant.language;
+        };
+    }
+
+    // English unless it reads as romanized Hindi; the mixed cases go back to the model
+    private static String latin(String text) {
+        int romanized = 0;
+        for (String word : words(text)) {
+            if (ROMANIZED_HINDI_WORDS.contains(word)) romanized++;
+        }
+        return romanized == 0 ? ENGLISH : null;
+    }
+
+    private static String devanagari(String text) {
+        int hindi = 0, marathi = 0, nepali = 0;
+        for (String word : words(text)) {
+            if (HINDI_WORDS.contains(word)) hindi++;
+            if (MARATHI_WORDS.contains(word)) marathi++;
+            if (NEPALI_WORDS.contains(word)) nepali++;
+        }
+        if (marathi > hindi && marathi > nepali) return "Marathi";
+        if (nepali > hindi && nepali > marathi) return "Nepali";
+        return "Hindi"; // by far the most common Devanagari language among sellers
+    }
+
+    private static String[] words(String text) {
+        return WORD_SEPARATORS.split(text.toLowerCase(Locale.ROOT));
+    }
+
+    private enum Script {
+        LATIN(null),
+        DEVANAGARI(null),
+        BENGALI(null),
+        GURMUKHI("Punjabi"),
+        GUJARATI("Gujarati"),
+        ORIYA("Odia"),
+        TAMIL("Tamil"),
+        TELUGU("Telugu"),
+        KANNADA("Kannada"),
+        MALAYALAM("Malayalam"),
+        ARABIC("Urdu"), // Perso-Arabic captions from Indian sellers are almost always Urdu (or Kashmiri)
+        OTHER(null);
+
+        final String language;
+
+        Script(String language) {
+            this.language = language;
+        }
+
+        static Script of(int codePoint) {
+            if (codePoint < 0x0250) return codePoint < 0x80 || codePoint >= 0xC0 ? LATIN : OTHER;
+            if (codePoint >= 0x0600 && codePoint <= 0x06FF) return ARABIC;
+            if (codePoint < 0x0900 || codePoint > 0x0D7F) return OTHER;
+            return switch ((codePoint - 0x0900) >> 7) { // the Indic blocks are 128 code points each, in this order
+                case 0 -> DEVANAGARI;
+                case 1 -> BENGALI;
+                case 2 -> GURMUKHI;
+                case 3 -> GUJARATI;
+                case 4 -> ORIYA;
+                case 5 -> TAMIL;
+                case 6 -> TELUGU;
+                case 7 -> KANNADA;
+                default -> MALAYALAM;
+            };
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.craftopia.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Multi-core CSV parsing for large imports. One cheap sequential pass finds record boundaries
+// (quote-aware, so newlines inside quoted fields never split a record), then the slices are parsed
+// on a ForkJoinPool. Rows are still handed to the consumer in file order, on the caller's thread.
+public class ParallelCsvParser {
+
+    private static final byte QUOTE = '"';
+    private static final byte ESCAPE = '\\'; // opencsv's default escape character
+    private static final byte NEWLINE = '\n';
+    private static final int SCAN_BUFFER_BYTES = 1 << 20;
+
+    private final int parallelism;
+    private final int chunkBytes;
+
+    public ParallelCsvParser(int parallelism, int chunkBytes) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkBytes = chunkBytes;
+    }
+
+    // Returns the number of rows handed to the consumer
+    public long parse(Path file, Consumer<ParsedCsvRow> consumer) throws IOException {
+        List<Chunk> chunks = split(file);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Deque<Future<List<ParsedCsvRow>>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+        int next = 0;
+
+        try {
+            while (next < chunks.size() || !inFlight.isEmpty()) {
+                // A bounded window of chunks in flight keeps memory flat however big the file is
+                while (next < chunks.size() && inFlight.size() < parallelism * 2) {
+                    Chunk chunk = chunks.get(next++);
+                    inFlight.add(pool.submit(() -> parseChunk(file, chunk)));
+                }
+
+                // Always wait on the oldest chunk, which is what keeps the output in file order
+                for (ParsedCsvRow row : inFlight.poll().get()) {
+                    consumer.accept(row);
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("CSV parsing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("CSV parsing failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Cuts the data rows (header excluded) into slices of roughly chunkBytes that end on a record boundary
+    List<Chunk> split(Path file) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_BYTES);
+            boolean inQuotes = false;
+            boolean pendingEscape = false;
+            boolean headerDone = false;
+            long position = 0;
+            long chunkStart = 0;
+            long chunkFirstRow = 2; // the header is row 1
+            long recordsInChunk = 0;
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+
+                    if (pendingEscape) {
+                        pendingEscape = false;
+                        if (b == QUOTE || b == ESCAPE) continue; // escaped, so it does not open or close a quote
+                    }
+                    if (b == ESCAPE) {
+                        pendingEscape = true;
+                    } else if (b == QUOTE) {
+                        inQuotes = !inQuotes; // "" inside a quoted field toggles twice, which is what we want
+                    } else if (b == NEWLINE && !inQuotes) {
+                        if (!headerDone) {
+                            headerDone = true;
+                            chunkStart = position;
+                            continue;
+                        }
+                        recordsInChunk++;
+                        if (position - chunkStart >= chunkBytes) {
+                            chunks.add(new Chunk(chunkStart, position, chunkFirstRow));
+                            chunkFirstRow += recordsInChunk;
+                            recordsInChunk = 0;
+                            chunkStart = position;
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+
+            if (headerDone && position > chunkStart) {
+                chunks.add(new Chunk(chunkStart, position, chunkFirstRow));
+            }
+        }
+        return chunks;
+    }
+
+    private List<ParsedCsvRow> parseChunk(Path file, Chunk chunk) throws IOException {
+        byte[] bytes = new byte[(int) (chunk.end - chunk.start)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = chunk.start;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) throw new EOFException("CSV file shrank while being parsed");
+                position += read;
+            }
+        }
+
+        List<ParsedCsvRow> rows = new ArrayList<>();
+        CSVUtil.readRows(new ByteArrayInputStream(bytes), false, chunk.firstRowNumber, rows::add);
+        return rows;
+    }
+
+    static class Chunk {
+        final long start;
+        final long end;
+        final long firstRowNumber;
+
+        Chunk(long start, long end, long firstRowNumber) {
+            this.start = start;
+            this.end = end;
+            this.firstRowNumber = firstRowNumber;
+        }
+    }
+}
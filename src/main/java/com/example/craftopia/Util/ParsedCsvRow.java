@@ -0,0 +1,26 @@
+package com.example.craftopia.Util;
+
+import com.example.craftopia.DTO.ProductRequest;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// One CSV record after parsing: either a product request or the reason it was rejected
+@Getter
+@AllArgsConstructor
+public class ParsedCsvRow {
+    private final long rowNumber; // 1-based record number in the file, header included
+    private final ProductRequest request;
+    private final String error;
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    public static ParsedCsvRow ok(long rowNumber, ProductRequest request) {
+        return new ParsedCsvRow(rowNumber, request, null);
+    }
+
+    public static ParsedCsvRow failed(long rowNumber, String error) {
+        return new ParsedCsvRow(rowNumber, null, error);
+    }
+}
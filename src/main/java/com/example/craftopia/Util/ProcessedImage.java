@@ -0,0 +1,31 @@
+package com.example.craftopia.Util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Output of the image pipeline for one upload. analysisImage is what the model sees; it is the
+// original file itself when the format could not be decoded (thumbnails is then empty, imageHash null).
+@Getter
+@AllArgsConstructor
+public class ProcessedImage {
+    private final Path original;
+    private final Path analysisImage;
+    private final Map<String, Path> thumbnails; // variant name -> JPEG file
+    private final Long imageHash; // perceptual hash, null when the image couldn't be decoded
+
+    public static ProcessedImage passThrough(Path original) {
+        return new ProcessedImage(original, original, Map.of(), null);
+    }
+
+    // Files generated by the pipeline; the original belongs to the caller
+    public List<Path> generatedFiles() {
+        List<Path> files = new ArrayList<>(thumbnails.values());
+        if (!analysisImage.equals(original)) files.add(analysisImage);
+        return files;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.craftopia.Util;
+
+import java.util.concurrent.TimeUnit;
+
+// Two token buckets checked together: one counts requests, the other (estimated) model tokens.
+// Both refill continuously at their per-minute rate. acquire() reserves from both and then sleeps
+// until the reservation is covered, so concurrent callers queue up in order instead of spinning.
+// tryAcquire() does the same but only if the wait fits in its timeout, and otherwise takes nothing.
+// A rate <= 0 disables that bucket.
+public class TokenBucketRateLimiter {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+
+    // Balances may go negative: the debt is what the next callers have to wait out
+    private double requests;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucketRateLimiter(int requestsPerMinute, long tokensPerMinute) {
+        this.requestCapacity = Math.max(requestsPerMinute, 0);
+        this.tokenCapacity = Math.max(tokensPerMinute, 0);
+        this.requests = requestCapacity;
+        this.tokens = tokenCapacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public void acquire(long tokenCost) throws InterruptedException {
+        long waitNanos = reserve(tokenCost, Long.MAX_VALUE);
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    // False, without waiting or reserving anything, if the buckets would not cover tokenCost within timeout
+    public boolean tryAcquire(long tokenCost, long timeout, TimeUnit unit) throws InterruptedException {
+        long waitNanos = reserve(tokenCost, unit.toNanos(timeout));
+        if (waitNanos < 0) return false;
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    // Reserves and returns the wait, or returns -1 and leaves the balances alone if it would exceed maxWaitNanos
+    synchronized long reserve(long tokenCost, long maxWaitNanos) {
+        long now = System.nanoTime();
+        refill(now);
+
+        // A single call larger than the whole bucket would otherwise never fit
+        double requestsAfter = requests - 1;
+        double tokensAfter = tokens - Math.min(tokenCost, tokenCapacity);
+
+        double waitNanos = 0;
+        if (requestCapacity > 0 && requestsAfter < 0) {
+            waitNanos = -requestsAfter * NANOS_PER_MINUTE / requestCapacity;
+        }
+        if (tokenCapacity > 0 && tokensAfter < 0) {
+            waitNanos = Math.max(waitNanos, -tokensAfter * NANOS_PER_MINUTE / tokenCapacity);
+        }
+        long wait = (long) Math.ceil(waitNanos);
+        if (wait > maxWaitNanos) return -1;
+
+        if (requestCapacity > 0) requests = requestsAfter;
+        if (tokenCapacity > 0) tokens = tokensAfter;
+        return wait;
+    }
+
+    private void refill(long now) {
+        double minutes = (now - lastRefill) / NANOS_PER_MINUTE;
+        lastRefill = now;
+        requests = Math.min(requestCapacity, requests + minutes * requestCapacity);
+        tokens = Math.min(tokenCapacity, tokens + minutes * tokenCapacity);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.craftopia.Repository;
+
+import com.example.craftopia.Entity.*;
+import com.example.craftopia.Mapper.OrderDTOMapper;
+import com.example.craftopia.Mapper.ProductDTOMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mapping a list to DTOs must cost a fixed number of statements, however long the list is
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querycount;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class QueryCountTests {
+
+    private static final int MAX_STATEMENTS_PER_PRODUCT_LIST = 3; // products+sellers, seller roles, tags
+    private static final int MAX_STATEMENTS_PER_ORDER_LIST = 1;   // orders+items+products
+
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+    @Autowired private ProductRepository productRepo;
+    @Autowired private OrderRepository orderRepo;
+
+    private Statistics statistics;
+    private Role sellerRole;
+    private User buyer;
+    private final List<User> sellers = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sellerRole = new Role();
+        sellerRole.setName(RoleName.ROLE_SELLER);
+        em.persist(sellerRole);
+
+        for (int i = 0; i < 3; i++) {
+            sellers.add(persistUser("seller" + i + "@craftopia.test"));
+        }
+        buyer = persistUser("buyer@craftopia.test");
+
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void productListStatementCountDoesNotGrowWithListSize() {
+        addProducts(10);
+        long small = countStatements(() -> assertEquals(10, mapProducts()));
+
+        addProducts(40);
+        long large = countStatements(() -> assertEquals(50, mapProducts()));
+
+        assertEquals(small, large);
+        assertTrue(large <= MAX_STATEMENTS_PER_PRODUCT_LIST, "product list ran " + large + " statements");
+    }
+
+    @Test
+    void orderListStatementCountDoesNotGrowWithListSize() {
+        addProducts(10);
+        addOrders(2);
+        long small = countStatements(() -> assertEquals(2, mapOrders()));
+
+        addOrders(18);
+        long large = countStatements(() -> assertEquals(20, mapOrders()));
+
+        assertEquals(small, large);
+        assertTrue(large <= MAX_STATEMENTS_PER_ORDER_LIST, "order list ran " + large + " statements");
+    }
+
+    private int mapProducts() {
+        return productRepo.findByIsDeletedFalse().stream().map(ProductDTOMapper::toDTO).toList().size();
+    }
+
+    private int mapOrders() {
+        return orderRepo.findByUser(buyer).stream().map(OrderDTOMapper::toDTO).toList().size();
+    }
+
+    private long countStatements(Runnable request) {
+        em.flush();
+        em.clear();
+        statistics.clear();
+        request.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User persistUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName(email);
+        user.setPassword("secret");
+        user.setRoles(Set.of(sellerRole));
+        return em.persist(user);
+    }
+
+    private void addProducts(int count) {
+        for (int i = 0; i < count; i++) {
+            int n = products.size();
+            products.add(em.persist(Product.builder()
+                    .name("Product " + n)
+                    .description("Handmade product " + n)
+                    .price(100.0 + n)
+                    .category("Paintings")
+                    .seller(sellers.get(n % sellers.size()))
+                    .tags(new ArrayList<>(List.of("handmade", "tag" + n)))
+                    .build()));
+        }
+    }
+
+    private void addOrders(int count) {
+        for (int i = 0; i < count; i++) {
+            Order order = em.persist(Order.builder()
+                    .user(buyer)
+                    .status(OrderStatus.PENDING)
+                    .totalAmount(300.0)
+                    .build());
+            for (int j = 0; j < 3; j++) {
+                em.persist(OrderItem.builder()
+                        .order(order)
+                        .product(products.get((i + j) % products.size()))
+                        .quantity(1)
+                        .price(100.0)
+                        .build());
+            }
+        }
+    }
+}
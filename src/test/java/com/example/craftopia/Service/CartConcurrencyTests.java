@@ -0,0 +1,142 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.AddToCartRequest;
+import com.example.craftopia.Entity.*;
+import com.example.craftopia.Repository.CartRepository;
+import com.example.craftopia.Repository.ProductRepository;
+import com.example.craftopia.Repository.RoleRepository;
+import com.example.craftopia.Repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Many buyers' tabs hammering one cart: every increment must land and each product must stay a single row.
+// Runs outside the test transaction so each cart write really commits and really races,
+// with the shipped retry settings: a user must never see "Cart is being updated elsewhere" here.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartconcurrency;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CartService.class, JpaCartStore.class, ProductCache.class})
+class CartConcurrencyTests {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 25;
+    private static final int PRODUCTS = 3;
+
+    @Autowired private CartService cartService;
+    @Autowired private CartStore cartStore;
+    @Autowired private CartRepository cartRepo;
+    @Autowired private UserRepository userRepo;
+    @Autowired private RoleRepository roleRepo;
+    @Autowired private ProductRepository productRepo;
+
+    private User buyer;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepo.findByName(RoleName.ROLE_BUYER).orElseGet(() -> {
+            Role buyerRole = new Role();
+            buyerRole.setName(RoleName.ROLE_BUYER);
+            return roleRepo.save(buyerRole);
+        });
+
+        User user = new User();
+        user.setEmail(UUID.randomUUID() + "@craftopia.test");
+        user.setName("buyer");
+        user.setPassword("secret");
+        user.setRoles(Set.of(role));
+        buyer = userRepo.save(user);
+
+        productIds.clear();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(productRepo.save(Product.builder()
+                    .name("Product " + i)
+                    .price(100.0 + i)
+                    .category("Paintings")
+                    .seller(buyer)
+                    .tags(new ArrayList<>())
+                    .build()).getId());
+        }
+    }
+
+    @Test
+    void concurrentAddsToANewCartLoseNothing() throws Exception {
+        // No cart yet: the first writers also race to create it
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                Long productId = productIds.get((thread + round) % PRODUCTS);
+                cartService.addToCart(buyer.getId(), new AddToCartRequest(productId, 1));
+            }
+        });
+
+        assertCart(THREADS * ROUNDS);
+    }
+
+    @Test
+    void concurrentAddsAndRemovesBalance() throws Exception {
+        cartStore.update(buyer.getId(), lines -> productIds.forEach(id -> lines.put(id, 1)));
+
+        // Each round nets +1 per thread: add two, take one back
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                Long productId = productIds.get((thread + round) % PRODUCTS);
+                cartService.addToCart(buyer.getId(), new AddToCartRequest(productId, 2));
+                cartService.removeFromCart(buyer.getId(), productId);
+            }
+        });
+
+        assertCart(PRODUCTS + THREADS * ROUNDS);
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(2, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void assertCart(int expectedTotal) {
+        Cart cart = cartRepo.findByUserIdAndIsDeletedFalse(buyer.getId()).orElseThrow();
+        Map<Long, Long> rowsPerProduct = cart.getItems().stream()
+                .collect(Collectors.groupingBy(CartItem::getProductId, Collectors.counting()));
+
+        assertEquals(PRODUCTS, cart.getItems().size());
+        rowsPerProduct.values().forEach(rows -> assertEquals(1L, rows));
+        assertEquals(expectedTotal, cart.getItems().stream().mapToInt(CartItem::getQuantity).sum());
+        assertEquals(expectedTotal, cart.getTotalQuantity());
+        assertEquals(PRODUCTS, cart.getItemCount());
+        assertEquals(1, cartRepo.findAll().stream().filter(c -> c.getUser().getId().equals(buyer.getId())).count());
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
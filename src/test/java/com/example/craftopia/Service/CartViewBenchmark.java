@@ -0,0 +1,103 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.CartItemResponse;
+import com.example.craftopia.Entity.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// GET /cart latency and statement count against cart size. Run with: ./gradlew test -Pbenchmark
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartview;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CartService.class, JpaCartStore.class, ProductCache.class})
+class CartViewBenchmark {
+
+    private static final int[] CART_SIZES = {2, 10, 30, 100}; // up to the tags @BatchSize
+    private static final int ITERATIONS = 200;
+
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+    @Autowired private CartService cartService;
+    @Autowired private CartStore cartStore;
+
+    @Test
+    void cartViewCostDoesNotGrowWithCartSize() {
+        Role sellerRole = new Role();
+        sellerRole.setName(RoleName.ROLE_SELLER);
+        em.persist(sellerRole);
+        User seller = persistUser("seller@craftopia.test", sellerRole);
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        List<Long> statementCounts = new ArrayList<>();
+
+        for (int size : CART_SIZES) {
+            User buyer = persistUser("buyer" + size + "@craftopia.test", sellerRole);
+            List<Long> productIds = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                productIds.add(em.persist(Product.builder()
+                        .name("Product " + i)
+                        .price(100.0 + i)
+                        .category("Paintings")
+                        .seller(seller)
+                        .tags(new ArrayList<>(List.of("handmade")))
+                        .build()).getId());
+            }
+            cartStore.update(buyer.getId(), lines -> productIds.forEach(id -> lines.put(id, 2)));
+
+            // One deleted product per cart: it must come back flagged, not fail the request
+            Product deleted = em.find(Product.class, productIds.get(0));
+            deleted.setDeleted(true);
+            em.flush();
+
+            em.clear();
+            cartService.getCartItems(buyer.getId()); // warm-up
+            long nanos = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                em.clear();
+                statistics.clear();
+                long start = System.nanoTime();
+                List<CartItemResponse> items = cartService.getCartItems(buyer.getId());
+                nanos += System.nanoTime() - start;
+
+                assertEquals(size, items.size());
+                assertEquals(1, items.stream().filter(item -> !item.isAvailable()).count());
+            }
+            long statements = statistics.getPrepareStatementCount();
+            statementCounts.add(statements);
+
+            System.out.printf("%4d items: %,8.1f us per cart view, %d statements%n",
+                    size, nanos / 1e3 / ITERATIONS, statements);
+        }
+
+        // Cart + items, products + sellers, tags, and the row of the deleted product
+        assertTrue(statementCounts.stream().allMatch(c -> c.equals(statementCounts.get(0))),
+                "statement count grew with cart size: " + statementCounts);
+    }
+
+    private User persistUser(String email, Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName(email);
+        user.setPassword("secret");
+        user.setRoles(Set.of(role));
+        return em.persist(user);
+    }
+}
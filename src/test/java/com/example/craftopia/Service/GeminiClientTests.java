@@ -0,0 +1,319 @@
+package com.example.craftopia.Service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// GeminiClient against a local stub of generateContent that can be told to answer slowly or with errors
+class GeminiClientTests {
+
+    private static final String OK_BODY =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"hello from stub\"}]}}]}";
+
+    private static final int READ_TIMEOUT_MS = 1000;
+    private static final long SLOW_CALL_MS = 200;
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MS = 300;
+
+    private static final Map<String, Object> REQUEST =
+            Map.of("contents", List.of(Map.of("parts", List.of(Map.of("text", "hi")))));
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicLong delayMillis = new AtomicLong();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicReference<String> okBody = new AtomicReference<>(OK_BODY);
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/generate", exchange -> {
+            hits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMillis.get());
+                byte[] body = (status.get() == 200 ? okBody.get() : "{\"error\":{}}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status.get(), body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException | IOException e) {
+                // client gave up (read timeout); nothing to answer
+            } finally {
+                exchange.close();
+            }
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void returnsCandidateText() throws Exception {
+        assertEquals("hello from stub", newClient(2, 4).generateContent(REQUEST, 10));
+    }
+
+    @Test
+    void pullsTheFirstCandidateTextOutOfAFullResponse() throws Exception {
+        okBody.set("{\"promptFeedback\":{\"safetyRatings\":[{\"category\":\"x\",\"text\":\"not this\"}]},"
+                + "\"candidates\":[{\"index\":0,\"safetyRatings\":[],\"content\":{\"role\":\"model\","
+                + "\"parts\":[{\"text\":\"first \\\"part\\\"\"},{\"text\":\"second\"}]}},"
+                + "{\"content\":{\"parts\":[{\"text\":\"other candidate\"}]}}],"
+                + "\"usageMetadata\":{\"totalTokenCount\":42}}");
+
+        assertEquals("first \"part\"", newClient(2, 4).generateContent(REQUEST, 10));
+    }
+
+    @Test
+    void missingCandidateTextIsAnError() {
+        okBody.set("{\"candidates\":[]}");
+        assertThrows(IOException.class, () -> newClient(2, 4).generateContent(REQUEST, 10));
+    }
+
+    @Test
+    void readTimeoutBoundsASlowCall() {
+        GeminiClient client = newClient(2, 4);
+        delayMillis.set(5000);
+
+        long start = System.currentTimeMillis();
+        assertThrows(IOException.class, () -> client.generateContent(REQUEST, 10));
+        assertTrue(System.currentTimeMillis() - start < 4000, "call was not cut off by the read timeout");
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndStopsCallingTheApi() {
+        GeminiClient client = newClient(2, 4);
+        status.set(503);
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThrows(RuntimeException.class, () -> client.generateContent(REQUEST, 10));
+        }
+        assertFalse(client.isAvailable());
+
+        assertThrows(IllegalStateException.class, () -> client.generateContent(REQUEST, 10));
+        assertEquals(FAILURE_THRESHOLD, hits.get(), "an open circuit must not reach the API");
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() throws Exception {
+        GeminiClient client = newClient(2, 4);
+        open(client);
+
+        status.set(200);
+        Thread.sleep(OPEN_MS + 100);
+
+        assertEquals("hello from stub", client.generateContent(REQUEST, 10));
+        assertTrue(client.isAvailable());
+        assertEquals("CLOSED", client.stats().get("circuit").toString());
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() throws Exception {
+        GeminiClient client = newClient(2, 4);
+        open(client);
+        Thread.sleep(OPEN_MS + 100);
+
+        int before = hits.get();
+        RuntimeException probe = assertThrows(RuntimeException.class, () -> client.generateContent(REQUEST, 10));
+        assertFalse(probe instanceof IllegalStateException, "the probe should have reached the API");
+        assertEquals(before + 1, hits.get());
+
+        assertThrows(IllegalStateException.class, () -> client.generateContent(REQUEST, 10));
+        assertEquals(before + 1, hits.get());
+    }
+
+    @Test
+    void clientErrorsDoNotTripTheBreaker() {
+        GeminiClient client = newClient(2, 4);
+        status.set(400);
+
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            assertThrows(RuntimeException.class, () -> client.generateContent(REQUEST, 10));
+        }
+        assertTrue(client.isAvailable());
+        assertEquals(FAILURE_THRESHOLD * 2, hits.get());
+    }
+
+    @Test
+    void requestWriterFailuresDoNotTripTheBreakerOrLeakPermits() {
+        GeminiClient client = newClient(2, 4);
+
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            assertThrows(IOException.class, () -> client.generateContent(generator -> {
+                throw new IOException("staged image is gone");
+            }, 10));
+            assertThrows(IOException.class, () -> client.generateContent(generator -> {
+                throw new IllegalArgumentException("bad part");
+            }, 10));
+        }
+        assertTrue(client.isAvailable());
+        assertEquals(0, client.stats().get("inFlight"));
+        assertEquals(2, client.stats().get("concurrencyLimit"));
+    }
+
+    @Test
+    void requestWriterFailureDuringTheProbeFreesTheProbeSlot() throws Exception {
+        GeminiClient client = newClient(2, 4);
+        open(client);
+        Thread.sleep(OPEN_MS + 100);
+
+        assertThrows(IOException.class, () -> client.generateContent(generator -> {
+            throw new IOException("staged image is gone");
+        }, 10));
+        assertEquals(0, client.stats().get("inFlight"));
+
+        // Without the slot back, every call would be refused as "circuit is open" from here on
+        status.set(200);
+        assertEquals("hello from stub", client.generateContent(REQUEST, 10));
+        assertEquals("CLOSED", client.stats().get("circuit").toString());
+    }
+
+    @Test
+    void concurrencyLimitBacksOffOnFailureAndSlowCallsAndGrowsOnSuccess() throws Exception {
+        GeminiClient client = newClient(4, 8);
+
+        status.set(500);
+        assertThrows(RuntimeException.class, () -> client.generateContent(REQUEST, 10));
+        assertEquals(2, client.stats().get("concurrencyLimit"));
+
+        status.set(200);
+        delayMillis.set(SLOW_CALL_MS + 100);
+        client.generateContent(REQUEST, 10);
+        assertEquals(1, client.stats().get("concurrencyLimit"));
+
+        delayMillis.set(0);
+        client.generateContent(REQUEST, 10);
+        assertEquals(2, client.stats().get("concurrencyLimit"));
+    }
+
+    @Test
+    void refusesCallsOverTheConcurrencyLimit() throws Exception {
+        GeminiClient client = newClient(1, 1);
+        delayMillis.set(500);
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = caller.submit(() -> client.generateContent(REQUEST, 10));
+            while ((int) client.stats().get("inFlight") == 0) Thread.sleep(5);
+
+            IllegalStateException refused = assertThrows(IllegalStateException.class,
+                    () -> client.generateContent(REQUEST, 10));
+            assertTrue(refused.getMessage().contains("concurrency"));
+
+            assertEquals("hello from stub", first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, hits.get());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void interruptingTheCallerCancelsTheCallAndFreesItsPermit() throws Exception {
+        GeminiClient client = newClient(2, 4);
+        delayMillis.set(READ_TIMEOUT_MS - 200);
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> call = caller.submit(() -> client.generateContent(REQUEST, 10));
+            while ((int) client.stats().get("inFlight") == 0) Thread.sleep(5);
+
+            long start = System.currentTimeMillis();
+            call.cancel(true);
+            while ((int) client.stats().get("inFlight") > 0) Thread.sleep(5);
+            assertTrue(System.currentTimeMillis() - start < 300, "the permit was held until the stub answered");
+
+            // Giving up on a call says nothing about the API
+            assertTrue(client.isAvailable());
+            assertEquals(2, client.stats().get("concurrencyLimit"));
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void refusesCallsOverTheRateLimitWithoutWaitingThemOut() throws Exception {
+        GeminiClient client = newClient(2, 4);
+        ReflectionTestUtils.setField(client, "requestsPerMinute", 1);
+        ReflectionTestUtils.setField(client, "maxRateWaitMs", 100L);
+        client.init();
+
+        assertEquals("hello from stub", client.generateContent(REQUEST, 10));
+
+        long start = System.currentTimeMillis();
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> client.generateContent(REQUEST, 10));
+        assertTrue(refused.getMessage().contains("rate"));
+        assertTrue(System.currentTimeMillis() - start < 1000, "the call waited out the minute");
+        assertEquals(1, hits.get());
+        assertEquals(0, client.stats().get("inFlight"));
+        assertTrue(client.isAvailable());
+    }
+
+    @Test
+    void anOpenCircuitIsRefusedBeforeWaitingForQuota() throws Exception {
+        GeminiClient client = newClient(2, 4);
+        ReflectionTestUtils.setField(client, "requestsPerMinute", FAILURE_THRESHOLD);
+        ReflectionTestUtils.setField(client, "maxRateWaitMs", 60_000L);
+        client.init();
+        open(client);
+
+        // The quota is spent, so reaching the limiter would mean a long wait
+        long start = System.currentTimeMillis();
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> client.generateContent(REQUEST, 10));
+        assertTrue(refused.getMessage().contains("circuit"));
+        assertTrue(System.currentTimeMillis() - start < 1000, "the refused call waited for quota first");
+    }
+
+    private void open(GeminiClient client) {
+        status.set(500);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThrows(RuntimeException.class, () -> client.generateContent(REQUEST, 10));
+        }
+        assertFalse(client.isAvailable());
+    }
+
+    private GeminiClient newClient(int initialConcurrency, int maxConcurrency) {
+        GeminiClient client = new GeminiClient();
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "apiUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/generate");
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1000);
+        ReflectionTestUtils.setField(client, "readTimeoutMs", READ_TIMEOUT_MS);
+        ReflectionTestUtils.setField(client, "maxIdleConnections", 2);
+        ReflectionTestUtils.setField(client, "keepAliveSeconds", 30L);
+        ReflectionTestUtils.setField(client, "requestsPerMinute", 0);
+        ReflectionTestUtils.setField(client, "tokensPerMinute", 0L);
+        ReflectionTestUtils.setField(client, "maxRateWaitMs", 0L);
+        ReflectionTestUtils.setField(client, "failureThreshold", FAILURE_THRESHOLD);
+        ReflectionTestUtils.setField(client, "openMs", OPEN_MS);
+        ReflectionTestUtils.setField(client, "initialConcurrency", initialConcurrency);
+        ReflectionTestUtils.setField(client, "minConcurrency", 1);
+        ReflectionTestUtils.setField(client, "maxConcurrency", maxConcurrency);
+        ReflectionTestUtils.setField(client, "slowCallMs", SLOW_CALL_MS);
+        client.init();
+        return client;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.craftopia.Service;
+
+import com.example.craftopia.DTO.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The in-memory index on its own: ranking, prefix and AND/OR queries, and the warm-up racing live writes
+class ProductSearchServiceTests {
+
+    private final List<ProductResponse> catalog = new ArrayList<>();
+    private Runnable duringWarmup = () -> { };
+    private ProductSearchService search;
+
+    @BeforeEach
+    void setUp() {
+        // Stands in for the database: hands out the catalog as it was when the scan started
+        ProductCatalogScanner scanner = new ProductCatalogScanner() {
+            @Override
+            public long forEachBatch(int batchSize, Consumer<List<ProductResponse>> consumer) {
+                List<ProductResponse> snapshot = List.copyOf(catalog);
+                duringWarmup.run();
+                consumer.accept(snapshot);
+                return snapshot.size();
+            }
+        };
+        search = new ProductSearchService();
+        ReflectionTestUtils.setField(search, "catalogScanner", scanner);
+        ReflectionTestUtils.setField(search, "enabled", true);
+        ReflectionTestUtils.setField(search, "warmupBatchSize", 100);
+    }
+
+    @Test
+    void nameHitsOutrankDescriptionHits() {
+        search.index(product(1L, "Wooden bowl", "A vase-shaped bowl"));
+        search.index(product(2L, "Clay vase", "Hand thrown"));
+
+        assertEquals(List.of(2L, 1L), search.search("vase", false, 10));
+    }
+
+    @Test
+    void limitKeepsTheBestHits() {
+        search.index(product(1L, "Bowl", "a vase"));
+        search.index(product(2L, "Vase", "vase vase"));
+        search.index(product(3L, "Vase", null));
+
+        List<Long> top = search.search("vase", false, 2);
+        assertEquals(2, top.size());
+        assertEquals(2L, top.get(0));
+    }
+
+    @Test
+    void trailingStarMatchesByPrefix() {
+        search.index(product(1L, "Handmade lamp", null));
+        search.index(product(2L, "Handwoven rug", null));
+        search.index(product(3L, "Lamp shade", null));
+
+        assertEquals(List.of(1L, 2L), sorted(search.search("hand*", false, 10)));
+        assertTrue(search.search("hand", false, 10).isEmpty(), "without the star a term matches whole words only");
+    }
+
+    @Test
+    void matchAllRequiresEveryTermAndMatchAnyTakesEither() {
+        search.index(product(1L, "Blue vase", null));
+        search.index(product(2L, "Blue rug", null));
+        search.index(product(3L, "Red vase", null));
+
+        assertEquals(List.of(1L), search.search("blue vase", true, 10));
+        assertEquals(List.of(1L, 2L, 3L), sorted(search.search("blue vase", false, 10)));
+        assertEquals(1L, search.search("blue vase", false, 10).get(0), "matching both terms ranks first");
+        assertTrue(search.search("blue lamp", true, 10).isEmpty());
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceWhatWasIndexed() {
+        search.index(product(1L, "Old lamp", null));
+        search.index(product(1L, "New vase", null));
+        search.index(product(2L, "Vase", null));
+        search.remove(2L);
+
+        assertTrue(search.search("lamp", false, 10).isEmpty());
+        assertEquals(List.of(1L), search.search("vase", false, 10));
+    }
+
+    @Test
+    void queriesOfOnlyShortWordsCannotBeSearched() {
+        assertFalse(search.canSearch("a b"));
+        assertFalse(search.canSearch("  "));
+        assertTrue(search.canSearch("a lamp"));
+        assertTrue(search.canSearch("la*"));
+    }
+
+    @Test
+    void notReadyUntilTheWarmupHasRun() {
+        catalog.add(product(1L, "Clay vase", null));
+        assertFalse(search.isReady());
+
+        search.rebuild();
+
+        assertTrue(search.isReady());
+        assertEquals(List.of(1L), search.search("vase", false, 10));
+    }
+
+    @Test
+    void liveWritesDuringTheWarmupWinOverTheScansSnapshot() {
+        catalog.add(product(1L, "Old lamp", null));
+        catalog.add(product(2L, "Clay vase", null));
+        catalog.add(product(3L, "Wool rug", null));
+        duringWarmup = () -> {
+            search.index(product(1L, "New vase", null)); // updated after the scan read it
+            search.remove(2L);                          // deleted after the scan read it
+        };
+
+        search.rebuild();
+
+        assertTrue(search.search("lamp", false, 10).isEmpty());
+        assertEquals(List.of(1L), search.search("vase", false, 10));
+        assertEquals(List.of(3L), search.search("rug", false, 10));
+    }
+
+    @Test
+    void disabledIndexIsNeverReadyAndIgnoresWrites() {
+        ReflectionTestUtils.setField(search, "enabled", false);
+        search.index(product(1L, "Clay vase", null));
+        search.rebuild();
+
+        assertFalse(search.isReady());
+        assertTrue(search.search("vase", false, 10).isEmpty());
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    private static ProductResponse product(Long id, String name, String description) {
+        return ProductResponse.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .tags(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.craftopia.Util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Rows/sec of CSV import parsing at 1, 2, 4, ... cores. Run with: ./gradlew test -Pbenchmark
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ParallelCsvParserBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path csv;
+
+    @BeforeAll
+    static void writeCsv() throws IOException {
+        csv = tempDir.resolve("products.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            out.write("name,description,price,category,imageUrl\n");
+            for (int i = 0; i < ROWS; i++) {
+                // Every 10th row has a quoted description with a comma, an escaped quote and a newline
+                String description = i % 10 == 0
+                        ? "\"Hand-painted, \"\"folk\"\" art\nsecond line\""
+                        : "Handmade item " + i;
+                String price = i % 1000 == 0 ? "not-a-number" : String.valueOf(100 + i % 900);
+                out.write("Product " + i + "," + description + "," + price
+                        + ",Paintings,https://img.example.com/" + i + ".jpg\n");
+            }
+        }
+    }
+
+    @Test
+    void rowsPerSecondScalesWithCores() throws IOException {
+        Tally expected = new Tally();
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(csv)) {
+            CSVUtil.readRows(in, expected);
+        }
+        report("sequential CSVUtil", expected.rows, System.nanoTime() - start);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) levels.add(threads);
+        levels.add(cores);
+
+        new ParallelCsvParser(cores, CHUNK_BYTES).parse(csv, new Tally()); // JIT warm-up
+
+        for (int threads : levels) {
+            Tally actual = new Tally();
+            start = System.nanoTime();
+            new ParallelCsvParser(threads, CHUNK_BYTES).parse(csv, actual);
+            report(threads + " thread(s)", actual.rows, System.nanoTime() - start);
+
+            // Same rows, same verdicts, same order as the sequential parser
+            assertEquals(expected.rows, actual.rows);
+            assertEquals(expected.invalid, actual.invalid);
+            assertEquals(expected.lastRowNumber, actual.lastRowNumber);
+            assertTrue(actual.ordered, "rows came out of order with " + threads + " threads");
+        }
+    }
+
+    private static void report(String label, long rows, long nanos) {
+        System.out.printf("%-20s %,d rows in %,d ms = %,.0f rows/sec%n",
+                label, rows, nanos / 1_000_000, rows / (nanos / 1e9));
+    }
+
+    private static class Tally implements Consumer<ParsedCsvRow> {
+        long rows;
+        long invalid;
+        long lastRowNumber;
+        boolean ordered = true;
+
+        @Override
+        public void accept(ParsedCsvRow row) {
+            rows++;
+            if (!row.isValid()) invalid++;
+            if (row.getRowNumber() <= lastRowNumber) ordered = false;
+            lastRowNumber = row.getRowNumber();
+        }
+    }
+}
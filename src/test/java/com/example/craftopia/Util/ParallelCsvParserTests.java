@@ -0,0 +1,89 @@
+package com.example.craftopia.Util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// The parallel parser must see exactly the records the sequential one does. Tiny chunks put a chunk
+// boundary at (almost) every byte, so a boundary cut in the wrong place shows up as a different row.
+class ParallelCsvParserTests {
+
+    private static final int[] CHUNK_BYTES = {1, 2, 3, 5, 8, 13, 64, 1 << 20};
+    private static final String HEADER = "name,description,price,category,imageUrl\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void quotedNewlinesAcrossChunkBoundaries() throws IOException {
+        assertSameRowsAsSequential(HEADER
+                + "Vase,\"Hand-painted\nsecond line\nthird line\",120,Pottery,https://img/1.jpg\n"
+                + "Lamp,\"one\n\n\nafter blank lines inside quotes\",80,Decor,https://img/2.jpg\n"
+                + "Rug,plain,300,Textiles,https://img/3.jpg\n");
+    }
+
+    @Test
+    void doubledQuoteEscapes() throws IOException {
+        assertSameRowsAsSequential(HEADER
+                + "Mask,\"the \"\"folk\"\" style, with a comma\",50,Masks,https://img/1.jpg\n"
+                + "\"Quoted \"\"name\"\"\",\"\"\"\",60,Masks,https://img/2.jpg\n"
+                + "Box,\"ends in a quote \"\"\n\"\"and a newline\",70,Boxes,https://img/3.jpg\n");
+    }
+
+    @Test
+    void crlfLineEndings() throws IOException {
+        assertSameRowsAsSequential("name,description,price,category,imageUrl\r\n"
+                + "Vase,\"two\r\nlines\",120,Pottery,https://img/1.jpg\r\n"
+                + "Lamp,plain,80,Decor,https://img/2.jpg\r\n"
+                + "\r\n"
+                + "Rug,plain,oops,Textiles,https://img/3.jpg\r\n");
+    }
+
+    @Test
+    void blankLinesKeepRowNumbers() throws IOException {
+        assertSameRowsAsSequential(HEADER
+                + "\n"
+                + "Vase,plain,120,Pottery,https://img/1.jpg\n"
+                + "\n\n"
+                + "Lamp,plain,not-a-price,Decor,https://img/2.jpg\n"
+                + "   \n"
+                + "Rug,plain,300,Textiles,https://img/3.jpg\n"
+                + "\n");
+    }
+
+    @Test
+    void noTrailingNewline() throws IOException {
+        assertSameRowsAsSequential(HEADER
+                + "Vase,plain,120,Pottery,https://img/1.jpg\n"
+                + "Lamp,\"last record\nspans lines\",80,Decor,https://img/2.jpg");
+    }
+
+    private void assertSameRowsAsSequential(String csv) throws IOException {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(tempDir.resolve("products.csv"), bytes);
+
+        List<String> expected = new ArrayList<>();
+        CSVUtil.readRows(new ByteArrayInputStream(bytes), row -> expected.add(describe(row)));
+        assertFalse(expected.isEmpty());
+
+        for (int chunkBytes : CHUNK_BYTES) {
+            List<String> actual = new ArrayList<>();
+            new ParallelCsvParser(4, chunkBytes).parse(file, row -> actual.add(describe(row)));
+            assertEquals(expected, actual, "chunkBytes=" + chunkBytes);
+        }
+    }
+
+    private static String describe(ParsedCsvRow row) {
+        return row.getRowNumber() + " | " + (row.isValid() ? row.getRequest() : "error: " + row.getError());
+    }
+}